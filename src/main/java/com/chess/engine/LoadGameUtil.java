@@ -37,9 +37,19 @@ public class LoadGameUtil {
         board = Board.initialiseBoard();
         try {
             BufferedReader br = new BufferedReader(new FileReader(file));
-            String str;
+            String str = br.readLine();
 
-            while (isValid && (str = br.readLine()) != null) {
+            // 第一行可以是初始局面的FEN串
+            if (str != null && str.indexOf('/') >= 0) {
+                try {
+                    board = Board.fromFen(str.trim());
+                } catch (IllegalArgumentException e) {
+                    isValid = false;
+                }
+                str = br.readLine();
+            }
+
+            for (; isValid && str != null; str = br.readLine()) {
                 // 给定字符串转换为落子对象，即棋手在棋盘上的移动
                 Optional<Move> move = Move.stringToMove(board, str);
                 if (move.isPresent()) {
@@ -0,0 +1,246 @@
+package com.chess.engine.board;
+
+import com.chess.engine.pieces.Piece;
+
+import static com.chess.engine.pieces.Piece.*;
+
+/**
+ * 攻击表：记录每个格子可以被哪些棋子到达（攻击或保护），随走法增量更新
+ * <p>
+ * 每个槽位缓存其棋子可以到达的格子，即该棋子的走法（空格子和对方棋子所在的格子）、攻击和防御（己方棋子所在的格子），
+ * 同时记录这些格子依赖的格子（车、炮、将/帅扫描过的线路，马腿和象眼）。依赖索引记录每个格子被哪些槽位依赖，
+ * 走一步棋只会改变起点和终点两个格子，所以只需重新计算依赖这两个格子的棋子以及移动和被吃的棋子。
+ */
+class AttackMap implements MoveSink {
+
+    /**
+     * 一个棋子最多可以到达或依赖的格子数量（车在空棋盘上）
+     */
+    private static final int MAX_SQUARES = Board.NUM_ROWS + Board.NUM_COLS - 2;
+    /**
+     * 直线方向（棋盘数组中的偏移）
+     */
+    private static final int[] LINE_DIRECTIONS = {-BoardUtil.SQUARE_ROW_WIDTH, -1, BoardUtil.SQUARE_ROW_WIDTH, 1};
+
+    private final Board board;
+    /**
+     * 每个格子上可以到达该格子的棋子的槽位掩码
+     */
+    private final int[] attackers;
+    /**
+     * 依赖索引：每个格子上依赖该格子占用情况的棋子的槽位掩码
+     */
+    private final int[] dependents;
+    /**
+     * 每个槽位上的棋子可以到达的格子
+     */
+    private final int[][] reachableSquares;
+    private final int[] reachableCounts;
+    /**
+     * 每个槽位上的棋子依赖的格子
+     */
+    private final int[][] dependencySquares;
+    private final int[] dependencyCounts;
+    /**
+     * 正在重新计算的槽位可以到达的格子及其数量，走法生成报告的格子依次加入
+     */
+    private int[] updatingSquares;
+    private int updatingCount;
+
+    /**
+     * 构造，并根据棋盘上的全部棋子初始化
+     *
+     * @param board 所属棋盘
+     */
+    AttackMap(Board board) {
+        this.board = board;
+        attackers = new int[BoardUtil.NUM_SQUARES];
+        dependents = new int[BoardUtil.NUM_SQUARES];
+        reachableSquares = new int[Board.NUM_SLOTS_PER_SIDE * 2][MAX_SQUARES];
+        reachableCounts = new int[Board.NUM_SLOTS_PER_SIDE * 2];
+        dependencySquares = new int[Board.NUM_SLOTS_PER_SIDE * 2][MAX_SQUARES];
+        dependencyCounts = new int[Board.NUM_SLOTS_PER_SIDE * 2];
+        update(-1);
+    }
+
+    /**
+     * 复制构造
+     *
+     * @param board     所属棋盘（给定攻击表所属棋盘的副本）
+     * @param attackMap 被复制的攻击表
+     */
+    AttackMap(Board board, AttackMap attackMap) {
+        this.board = board;
+        attackers = attackMap.attackers.clone();
+        dependents = attackMap.dependents.clone();
+        reachableSquares = new int[Board.NUM_SLOTS_PER_SIDE * 2][];
+        dependencySquares = new int[Board.NUM_SLOTS_PER_SIDE * 2][];
+        for (int slot = 0; slot < Board.NUM_SLOTS_PER_SIDE * 2; slot++) {
+            reachableSquares[slot] = attackMap.reachableSquares[slot].clone();
+            dependencySquares[slot] = attackMap.dependencySquares[slot].clone();
+        }
+        reachableCounts = attackMap.reachableCounts.clone();
+        dependencyCounts = attackMap.dependencyCounts.clone();
+    }
+
+    /**
+     * 返回可以到达给定格子的棋子的槽位掩码
+     *
+     * @param square 棋盘数组中的格子
+     * @return 槽位掩码
+     */
+    int getAttackers(int square) {
+        return attackers[square];
+    }
+
+    /**
+     * 返回依赖给定格子占用情况的棋子的槽位掩码，这些棋子在给定格子改变后需要重新计算
+     *
+     * @param square 棋盘数组中的格子
+     * @return 槽位掩码
+     */
+    int getDependents(int square) {
+        return dependents[square];
+    }
+
+    /**
+     * 返回给定槽位上的棋子可以到达的格子的数量
+     */
+    int getReachableCount(int slot) {
+        return reachableCounts[slot];
+    }
+
+    /**
+     * 返回给定槽位上的棋子可以到达的第index个格子
+     */
+    int getReachableSquare(int slot, int index) {
+        return reachableSquares[slot][index];
+    }
+
+    /**
+     * 重新计算给定槽位掩码中的棋子可以到达和依赖的格子，已被吃的棋子从攻击表中移除
+     *
+     * @param slots 槽位掩码
+     */
+    void update(int slots) {
+        while (slots != 0) {
+            int slot = Integer.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+
+            int bit = 1 << slot;
+            int[] squares = reachableSquares[slot];
+            for (int i = 0; i < reachableCounts[slot]; i++) {
+                attackers[squares[i]] &= ~bit;
+            }
+            int[] dependencies = dependencySquares[slot];
+            for (int i = 0; i < dependencyCounts[slot]; i++) {
+                dependents[dependencies[i]] &= ~bit;
+            }
+
+            Piece piece = board.getSlotPiece(slot);
+            updatingSquares = squares;
+            updatingCount = 0;
+            if (piece != null) {
+                piece.generate(board, this);
+            }
+            for (int i = 0; i < updatingCount; i++) {
+                attackers[squares[i]] |= bit;
+            }
+            reachableCounts[slot] = updatingCount;
+
+            int count = piece == null ? 0 : getDependencySquares(piece, dependencies);
+            for (int i = 0; i < count; i++) {
+                dependents[dependencies[i]] |= bit;
+            }
+            dependencyCounts[slot] = count;
+        }
+    }
+
+    @Override
+    public void accept(int srcSquare, int destSquare, int capturedCode) {
+        updatingSquares[updatingCount++] = destSquare;
+    }
+
+    @Override
+    public void defend(int srcSquare, int destSquare, int defendedCode) {
+        updatingSquares[updatingCount++] = destSquare;
+    }
+
+    /**
+     * 将给定棋子可以到达的格子所依赖的格子写入给定数组
+     *
+     * @return 写入的格子的数量
+     */
+    private int getDependencySquares(Piece piece, int[] dependencies) {
+        int square = piece.getSquare();
+        int count = 0;
+
+        switch (piece.getPieceType()) {
+            case CHARIOT:
+                for (int direction : LINE_DIRECTIONS) {
+                    count = scanLine(square, direction, 1, dependencies, count);
+                }
+                break;
+            case CANNON:
+                for (int direction : LINE_DIRECTIONS) {
+                    count = scanLine(square, direction, 2, dependencies, count);
+                }
+                break;
+            case GENERAL:
+                // 将帅对脸
+                count = scanLine(square, BoardUtil.SQUARE_ROW_WIDTH * piece.getAlliance().getDirection(), 1, dependencies, count);
+                break;
+            case HORSE:
+            case ELEPHANT:
+                // 马腿、象眼
+                for (int blocker : MoveTables.getBlockers(piece.getCode(), square)) {
+                    dependencies[count++] = blocker;
+                }
+                break;
+            default:
+                break;
+        }
+
+        return count;
+    }
+
+    /**
+     * 从给定格子沿给定方向扫描，直到遇到给定数量的棋子或棋盘边界，将扫描过的格子写入给定数组
+     *
+     * @return 写入后的格子数量
+     */
+    private int scanLine(int square, int direction, int pieceCount, int[] squares, int count) {
+        int currSquare = square + direction;
+        int code;
+        while ((code = board.getPieceCode(currSquare)) != OFFBOARD) {
+            squares[count++] = currSquare;
+            if (code != EMPTY && --pieceCount == 0) break;
+            currSquare += direction;
+        }
+        return count;
+    }
+
+    /**
+     * 检查攻击表是否与全部重新生成的结果一致：每个格子的攻击者和依赖者，以及每个槽位可以到达的格子（包括顺序）都相同
+     *
+     * @return true, 一致，否则，false
+     */
+    boolean isConsistent() {
+        AttackMap fresh = new AttackMap(board);
+        for (int square = 0; square < BoardUtil.NUM_SQUARES; square++) {
+            if (attackers[square] != fresh.attackers[square] || dependents[square] != fresh.dependents[square]) {
+                return false;
+            }
+        }
+
+        for (int slot = 0; slot < Board.NUM_SLOTS_PER_SIDE * 2; slot++) {
+            if (reachableCounts[slot] != fresh.reachableCounts[slot]) {
+                return false;
+            }
+            for (int i = 0; i < reachableCounts[slot]; i++) {
+                if (reachableSquares[slot][i] != fresh.reachableSquares[slot][i]) return false;
+            }
+        }
+        return true;
+    }
+}
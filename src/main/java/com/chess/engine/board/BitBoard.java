@@ -0,0 +1,499 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece.PieceType;
+
+import static com.chess.engine.pieces.Piece.*;
+
+/**
+ * 基于位棋盘的中国象棋棋盘核心
+ * <p>
+ * 90个位置（索引 = 行 * 9 + 列）用两个long表示：低位long存放索引0-63，高位long存放索引64-89。
+ * 每种棋子编码（见{@link com.chess.engine.pieces.Piece#getCode()}）各有一对位棋盘。
+ * 车和炮的攻击通过行/列占用掩码查预先计算的表得到，其他棋子的走法来自{@link MoveTables}（含蹩马腿、塞象眼的格子）。
+ * <p>
+ * 走法编码为int：低7位为起点索引，第8-14位为终点索引。
+ * 该类可以与{@link Board}并列使用，用于比较走法生成的结果（如perft）及其速度。
+ */
+public class BitBoard {
+
+    /**
+     * 单个局面的最大走法数量
+     */
+    public static final int MAX_MOVES = 128;
+    /**
+     * 最大搜索深度（撤销栈的容量）
+     */
+    private static final int MAX_PLY = 256;
+
+    private static final int[] ROW_OF = new int[BoardUtil.NUM_POSITIONS];
+    private static final int[] COL_OF = new int[BoardUtil.NUM_POSITIONS];
+
+    // ---------------- 行/列占用表：按 (位置 << 占用位数) | 占用掩码 索引，值为目标的掩码 ----------------
+    /**
+     * 行上第一个棋子之前的空位置（车和炮的不吃子走法）
+     */
+    private static final int[] RANK_SLIDES = new int[Board.NUM_COLS << Board.NUM_COLS];
+    /**
+     * 行上每个方向的第一个棋子（车的吃子走法）
+     */
+    private static final int[] RANK_FIRST_BLOCKERS = new int[Board.NUM_COLS << Board.NUM_COLS];
+    /**
+     * 行上每个方向的第二个棋子（炮的吃子走法）
+     */
+    private static final int[] RANK_SECOND_BLOCKERS = new int[Board.NUM_COLS << Board.NUM_COLS];
+    /**
+     * 列上第一个棋子之前的空位置（车和炮的不吃子走法）
+     */
+    private static final int[] FILE_SLIDES = new int[Board.NUM_ROWS << Board.NUM_ROWS];
+    /**
+     * 列上每个方向的第一个棋子（车的吃子走法、将帅对脸）
+     */
+    private static final int[] FILE_FIRST_BLOCKERS = new int[Board.NUM_ROWS << Board.NUM_ROWS];
+    /**
+     * 列上每个方向的第二个棋子（炮的吃子走法）
+     */
+    private static final int[] FILE_SECOND_BLOCKERS = new int[Board.NUM_ROWS << Board.NUM_ROWS];
+
+    // ---------------- 按棋子编码和位置索引的走法表 ----------------
+    /**
+     * 每个位置可以到达的目标位置
+     */
+    private static final int[][][] LEAPER_TARGETS = new int[OFFBOARD][][];
+    /**
+     * 与目标位置对应的蹩腿位置（马腿、象眼），-1表示没有
+     */
+    private static final int[][][] LEAPER_BLOCKERS = new int[OFFBOARD][][];
+    /**
+     * 可以走到每个位置的起点位置（走法表的逆表）
+     */
+    private static final int[][][] LEAPER_SOURCES = new int[OFFBOARD][][];
+    /**
+     * 与起点位置对应的蹩腿位置，-1表示没有
+     */
+    private static final int[][][] LEAPER_SOURCE_BLOCKERS = new int[OFFBOARD][][];
+
+    static {
+        for (int index = 0; index < BoardUtil.NUM_POSITIONS; index++) {
+            ROW_OF[index] = index / Board.NUM_COLS;
+            COL_OF[index] = index % Board.NUM_COLS;
+        }
+        initLineTables(Board.NUM_COLS, RANK_SLIDES, RANK_FIRST_BLOCKERS, RANK_SECOND_BLOCKERS);
+        initLineTables(Board.NUM_ROWS, FILE_SLIDES, FILE_FIRST_BLOCKERS, FILE_SECOND_BLOCKERS);
+        for (Alliance alliance : Alliance.values()) {
+            for (PieceType pieceType : new PieceType[]{PieceType.SOLDIER, PieceType.ADVISOR, PieceType.ELEPHANT, PieceType.HORSE, PieceType.GENERAL}) {
+                initLeaperTables(pieceType, alliance);
+            }
+        }
+    }
+
+    /**
+     * 每种棋子编码的位棋盘（索引0-63）
+     */
+    private final long[] piecesLow = new long[OFFBOARD];
+    /**
+     * 每种棋子编码的位棋盘（索引64-89）
+     */
+    private final long[] piecesHigh = new long[OFFBOARD];
+    /**
+     * 每行的占用掩码
+     */
+    private final int[] rankOccupancy = new int[Board.NUM_ROWS];
+    /**
+     * 每列的占用掩码
+     */
+    private final int[] fileOccupancy = new int[Board.NUM_COLS];
+    /**
+     * 每个位置上的棋子编码
+     */
+    private final int[] codes = new int[BoardUtil.NUM_POSITIONS];
+    /**
+     * 被吃棋子编码的栈，用于撤销走法
+     */
+    private final int[] capturedCodes = new int[MAX_PLY];
+    /**
+     * 每一层的走法数组，perft时按需分配后重复使用
+     */
+    private final int[][] moveStacks = new int[MAX_PLY][];
+    private int ply;
+    private Alliance currTurn;
+
+    /**
+     * 根据给定棋盘构造
+     *
+     * @param board 给定棋盘
+     */
+    public BitBoard(Board board) {
+        for (int index = 0; index < BoardUtil.NUM_POSITIONS; index++) {
+            int code = board.getPieceCode(toSquare(index));
+            if (code != EMPTY) {
+                putPiece(index, code);
+            }
+        }
+        currTurn = board.getCurrPlayer().getAlliance();
+    }
+
+    /**
+     * 生成当前走子方的所有伪合法走法（不检查走后己方是否被将军）
+     *
+     * @param moves 存放走法的数组，长度至少为{@link #MAX_MOVES}
+     * @return 走法的数量
+     */
+    public int generateMoves(int[] moves) {
+        int count = 0;
+        int side = currTurn.isRed() ? 0 : BLACK_FLAG;
+
+        for (PieceType pieceType : PieceType.values()) {
+            int code = getCode(pieceType, currTurn);
+            long low = piecesLow[code];
+            long high = piecesHigh[code];
+            while (low != 0) {
+                int from = Long.numberOfTrailingZeros(low);
+                low &= low - 1;
+                count = generatePieceMoves(pieceType, from, side, moves, count);
+            }
+            while (high != 0) {
+                int from = Long.numberOfTrailingZeros(high) + Long.SIZE;
+                high &= high - 1;
+                count = generatePieceMoves(pieceType, from, side, moves, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 生成给定位置上棋子的伪合法走法
+     */
+    private int generatePieceMoves(PieceType pieceType, int from, int side, int[] moves, int count) {
+        int row = ROW_OF[from];
+        int col = COL_OF[from];
+        int rankIndex = (col << Board.NUM_COLS) | rankOccupancy[row];
+        int fileIndex = (row << Board.NUM_ROWS) | fileOccupancy[col];
+
+        switch (pieceType) {
+            case CHARIOT:
+                count = addRankMoves(from, row, RANK_SLIDES[rankIndex] | RANK_FIRST_BLOCKERS[rankIndex], side, moves, count);
+                count = addFileMoves(from, col, FILE_SLIDES[fileIndex] | FILE_FIRST_BLOCKERS[fileIndex], side, moves, count);
+                break;
+            case CANNON:
+                count = addRankMoves(from, row, RANK_SLIDES[rankIndex] | RANK_SECOND_BLOCKERS[rankIndex], side, moves, count);
+                count = addFileMoves(from, col, FILE_SLIDES[fileIndex] | FILE_SECOND_BLOCKERS[fileIndex], side, moves, count);
+                break;
+            default:
+                int code = getCode(pieceType, Alliance.RED) | side;
+                int[] targets = LEAPER_TARGETS[code][from];
+                int[] blockers = LEAPER_BLOCKERS[code][from];
+                for (int i = 0; i < targets.length; i++) {
+                    int to = targets[i];
+                    if ((blockers[i] < 0 || codes[blockers[i]] == EMPTY) && isTarget(codes[to], side)) {
+                        moves[count++] = from | (to << 7);
+                    }
+                }
+                if (pieceType == PieceType.GENERAL) {
+                    // 将帅对脸
+                    int blockersMask = FILE_FIRST_BLOCKERS[fileIndex];
+                    while (blockersMask != 0) {
+                        int to = Integer.numberOfTrailingZeros(blockersMask) * Board.NUM_COLS + col;
+                        blockersMask &= blockersMask - 1;
+                        if (codes[to] == (getCode(PieceType.GENERAL, Alliance.RED) | (side ^ BLACK_FLAG))) {
+                            moves[count++] = from | (to << 7);
+                        }
+                    }
+                }
+        }
+        return count;
+    }
+
+    private int addRankMoves(int from, int row, int targetsMask, int side, int[] moves, int count) {
+        while (targetsMask != 0) {
+            int to = row * Board.NUM_COLS + Integer.numberOfTrailingZeros(targetsMask);
+            targetsMask &= targetsMask - 1;
+            if (isTarget(codes[to], side)) {
+                moves[count++] = from | (to << 7);
+            }
+        }
+        return count;
+    }
+
+    private int addFileMoves(int from, int col, int targetsMask, int side, int[] moves, int count) {
+        while (targetsMask != 0) {
+            int to = Integer.numberOfTrailingZeros(targetsMask) * Board.NUM_COLS + col;
+            targetsMask &= targetsMask - 1;
+            if (isTarget(codes[to], side)) {
+                moves[count++] = from | (to << 7);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 检查给定编码的位置是否可以作为给定一方的走法目标（空位置或对方棋子）
+     */
+    private static boolean isTarget(int code, int side) {
+        return code == EMPTY || (code & BLACK_FLAG) != side;
+    }
+
+    /**
+     * 执行给定走法
+     *
+     * @param move 走法编码
+     */
+    public void makeMove(int move) {
+        int from = getFrom(move);
+        int to = getTo(move);
+        int movedCode = codes[from];
+        int capturedCode = codes[to];
+
+        capturedCodes[ply++] = capturedCode;
+        if (capturedCode != EMPTY) {
+            removePiece(to, capturedCode);
+        }
+        removePiece(from, movedCode);
+        putPiece(to, movedCode);
+        currTurn = currTurn.opposite();
+    }
+
+    /**
+     * 撤销给定走法，必须是最后一次执行的走法
+     *
+     * @param move 走法编码
+     */
+    public void unmakeMove(int move) {
+        int from = getFrom(move);
+        int to = getTo(move);
+        int movedCode = codes[to];
+        int capturedCode = capturedCodes[--ply];
+
+        removePiece(to, movedCode);
+        putPiece(from, movedCode);
+        if (capturedCode != EMPTY) {
+            putPiece(to, capturedCode);
+        }
+        currTurn = currTurn.opposite();
+    }
+
+    private void putPiece(int index, int code) {
+        codes[index] = code;
+        if (index < Long.SIZE) {
+            piecesLow[code] |= 1L << index;
+        } else {
+            piecesHigh[code] |= 1L << (index - Long.SIZE);
+        }
+        rankOccupancy[ROW_OF[index]] |= 1 << COL_OF[index];
+        fileOccupancy[COL_OF[index]] |= 1 << ROW_OF[index];
+    }
+
+    private void removePiece(int index, int code) {
+        codes[index] = EMPTY;
+        if (index < Long.SIZE) {
+            piecesLow[code] &= ~(1L << index);
+        } else {
+            piecesHigh[code] &= ~(1L << (index - Long.SIZE));
+        }
+        rankOccupancy[ROW_OF[index]] &= ~(1 << COL_OF[index]);
+        fileOccupancy[COL_OF[index]] &= ~(1 << ROW_OF[index]);
+    }
+
+    /**
+     * 检查给定一方是否被将军（包括将帅对脸）
+     *
+     * @param alliance 给定一方
+     * @return true，被将军，否则，false
+     */
+    public boolean isInCheck(Alliance alliance) {
+        int generalCode = getCode(PieceType.GENERAL, alliance);
+        int general = piecesLow[generalCode] != 0
+                ? Long.numberOfTrailingZeros(piecesLow[generalCode])
+                : Long.numberOfTrailingZeros(piecesHigh[generalCode]) + Long.SIZE;
+        if (general >= BoardUtil.NUM_POSITIONS) {
+            return false;
+        }
+
+        Alliance oppAlliance = alliance.opposite();
+        int oppChariot = getCode(PieceType.CHARIOT, oppAlliance);
+        int oppCannon = getCode(PieceType.CANNON, oppAlliance);
+        int oppGeneral = getCode(PieceType.GENERAL, oppAlliance);
+        int row = ROW_OF[general];
+        int col = COL_OF[general];
+        int rankIndex = (col << Board.NUM_COLS) | rankOccupancy[row];
+        int fileIndex = (row << Board.NUM_ROWS) | fileOccupancy[col];
+
+        // 车、炮、对脸的将帅
+        int mask = RANK_FIRST_BLOCKERS[rankIndex];
+        while (mask != 0) {
+            if (codes[row * Board.NUM_COLS + Integer.numberOfTrailingZeros(mask)] == oppChariot) return true;
+            mask &= mask - 1;
+        }
+        mask = FILE_FIRST_BLOCKERS[fileIndex];
+        while (mask != 0) {
+            int code = codes[Integer.numberOfTrailingZeros(mask) * Board.NUM_COLS + col];
+            if (code == oppChariot || code == oppGeneral) return true;
+            mask &= mask - 1;
+        }
+        mask = RANK_SECOND_BLOCKERS[rankIndex];
+        while (mask != 0) {
+            if (codes[row * Board.NUM_COLS + Integer.numberOfTrailingZeros(mask)] == oppCannon) return true;
+            mask &= mask - 1;
+        }
+        mask = FILE_SECOND_BLOCKERS[fileIndex];
+        while (mask != 0) {
+            if (codes[Integer.numberOfTrailingZeros(mask) * Board.NUM_COLS + col] == oppCannon) return true;
+            mask &= mask - 1;
+        }
+
+        // 马、兵（通过走法表的逆表）
+        return isAttackedByLeaper(general, getCode(PieceType.HORSE, oppAlliance))
+                || isAttackedByLeaper(general, getCode(PieceType.SOLDIER, oppAlliance));
+    }
+
+    private boolean isAttackedByLeaper(int index, int attackerCode) {
+        int[] sources = LEAPER_SOURCES[attackerCode][index];
+        int[] blockers = LEAPER_SOURCE_BLOCKERS[attackerCode][index];
+        for (int i = 0; i < sources.length; i++) {
+            if (codes[sources[i]] == attackerCode && (blockers[i] < 0 || codes[blockers[i]] == EMPTY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算给定深度的叶子节点数量（perft），用于验证走法生成的正确性
+     *
+     * @param depth 深度
+     * @return 叶子节点数量
+     */
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = moveStacks[ply];
+        if (moves == null) {
+            moves = moveStacks[ply] = new int[MAX_MOVES];
+        }
+        int count = generateMoves(moves);
+        Alliance mover = currTurn;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves[i]);
+            if (!isInCheck(mover)) {
+                nodes += perft(depth - 1);
+            }
+            unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * 获取给定位置上的棋子编码
+     *
+     * @param index 位置索引
+     * @return 棋子编码
+     */
+    public int getPieceCode(int index) {
+        return codes[index];
+    }
+
+    public Alliance getCurrTurn() {
+        return currTurn;
+    }
+
+    /**
+     * 获取走法的起点位置索引
+     */
+    public static int getFrom(int move) {
+        return move & 0x7f;
+    }
+
+    /**
+     * 获取走法的终点位置索引
+     */
+    public static int getTo(int move) {
+        return (move >> 7) & 0x7f;
+    }
+
+    /**
+     * 将位置索引转换为{@link Board}中棋盘数组的格子
+     *
+     * @param index 位置索引
+     * @return 棋盘数组中的格子
+     */
+    public static int toSquare(int index) {
+        return BoardUtil.toSquare(ROW_OF[index], COL_OF[index]);
+    }
+
+    /**
+     * 初始化一条长度为n的线（行或列）上的占用表
+     */
+    private static void initLineTables(int n, int[] slides, int[] firstBlockers, int[] secondBlockers) {
+        for (int pos = 0; pos < n; pos++) {
+            for (int occ = 0; occ < (1 << n); occ++) {
+                int slide = 0;
+                int first = 0;
+                int second = 0;
+                for (int dir = -1; dir <= 1; dir += 2) {
+                    int i = pos + dir;
+                    while (i >= 0 && i < n && (occ & (1 << i)) == 0) {
+                        slide |= 1 << i;
+                        i += dir;
+                    }
+                    if (i < 0 || i >= n) continue;
+                    first |= 1 << i;
+                    i += dir;
+                    while (i >= 0 && i < n && (occ & (1 << i)) == 0) {
+                        i += dir;
+                    }
+                    if (i < 0 || i >= n) continue;
+                    second |= 1 << i;
+                }
+                int tableIndex = (pos << n) | occ;
+                slides[tableIndex] = slide;
+                firstBlockers[tableIndex] = first;
+                secondBlockers[tableIndex] = second;
+            }
+        }
+    }
+
+    /**
+     * 根据{@link MoveTables}初始化给定棋子按位置索引的走法表及其逆表
+     */
+    private static void initLeaperTables(PieceType pieceType, Alliance alliance) {
+        int code = getCode(pieceType, alliance);
+        boolean hasBlockers = pieceType == PieceType.HORSE || pieceType == PieceType.ELEPHANT;
+        int[][] targets = new int[BoardUtil.NUM_POSITIONS][];
+        int[][] blockers = new int[BoardUtil.NUM_POSITIONS][];
+        int[] sourceCounts = new int[BoardUtil.NUM_POSITIONS];
+
+        for (int from = 0; from < BoardUtil.NUM_POSITIONS; from++) {
+            int square = BoardUtil.toSquare(ROW_OF[from], COL_OF[from]);
+            int[] targetSquares = MoveTables.getTargets(code, square);
+            targets[from] = new int[targetSquares.length];
+            blockers[from] = new int[targetSquares.length];
+            for (int i = 0; i < targetSquares.length; i++) {
+                targets[from][i] = BoardUtil.squareToIndex(targetSquares[i]);
+                blockers[from][i] = hasBlockers ? BoardUtil.squareToIndex(MoveTables.getBlockers(code, square)[i]) : -1;
+                sourceCounts[targets[from][i]]++;
+            }
+        }
+
+        int[][] sources = new int[BoardUtil.NUM_POSITIONS][];
+        int[][] sourceBlockers = new int[BoardUtil.NUM_POSITIONS][];
+        for (int to = 0; to < BoardUtil.NUM_POSITIONS; to++) {
+            sources[to] = new int[sourceCounts[to]];
+            sourceBlockers[to] = new int[sourceCounts[to]];
+            sourceCounts[to] = 0;
+        }
+        for (int from = 0; from < BoardUtil.NUM_POSITIONS; from++) {
+            for (int i = 0; i < targets[from].length; i++) {
+                int to = targets[from][i];
+                sources[to][sourceCounts[to]] = from;
+                sourceBlockers[to][sourceCounts[to]++] = blockers[from][i];
+            }
+        }
+
+        LEAPER_TARGETS[code] = targets;
+        LEAPER_BLOCKERS[code] = blockers;
+        LEAPER_SOURCES[code] = sources;
+        LEAPER_SOURCE_BLOCKERS[code] = sourceBlockers;
+    }
+}
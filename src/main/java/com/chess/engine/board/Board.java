@@ -29,16 +29,158 @@ public class Board {
      * 黑方河所在行
      */
     public static final int RIVER_ROW_BLACK = 4;
+    /**
+     * 每一方棋子槽位的数量
+     */
+    static final int NUM_SLOTS_PER_SIDE = 16;
+    /**
+     * 合法走法缓存的大小（2的幂）
+     */
+    private static final int LEGAL_MOVE_CACHE_SIZE = 1 << 12;
+    /**
+     * 撤销栈的初始容量，不够时加倍
+     */
+    private static final int UNDO_STACK_SIZE = 256;
+    /**
+     * 撤销栈中走法编码的掩码和被吃棋子槽位的位置
+     */
+    private static final int UNDO_SLOT_SHIFT = 24;
+    private static final int UNDO_MOVE_MASK = (1 << UNDO_SLOT_SHIFT) - 1;
+    /**
+     * 允许空着时当前玩家至少需要的车、马、炮的值单位（一个车或两个马/炮），子力更少时容易出现等着的局面
+     */
+    private static final int NULL_MOVE_MIN_VALUE_UNITS = 2;
+    /**
+     * 重复局面计数表的大小，必须是2的幂
+     */
+    private static final int REPETITION_TABLE_SIZE = 1 << 12;
+    /**
+     * FEN中按棋子类型顺序（见{@link PieceType}）的红方棋子字母，黑方为小写
+     */
+    private static final String FEN_PIECES = "PABNCRK";
+    /**
+     * 按FEN字母索引的棋子编码
+     */
+    private static final int[] FEN_CODES = new int['z' + 1];
+
+    static {
+        for (PieceType pieceType : PieceType.values()) {
+            char c = FEN_PIECES.charAt(pieceType.ordinal());
+            FEN_CODES[c] = getCode(pieceType, Alliance.RED);
+            FEN_CODES[Character.toLowerCase(c)] = getCode(pieceType, Alliance.BLACK);
+        }
+        // 另一种常见的写法
+        FEN_CODES['G'] = getCode(PieceType.GENERAL, Alliance.RED);
+        FEN_CODES['g'] = getCode(PieceType.GENERAL, Alliance.BLACK);
+        FEN_CODES['E'] = getCode(PieceType.ELEPHANT, Alliance.RED);
+        FEN_CODES['e'] = getCode(PieceType.ELEPHANT, Alliance.BLACK);
+        FEN_CODES['H'] = getCode(PieceType.HORSE, Alliance.RED);
+        FEN_CODES['h'] = getCode(PieceType.HORSE, Alliance.BLACK);
+    }
+    /**
+     * 牵制标记：格子上的己方棋子被牵制，离开后可能送将
+     */
+    private static final int PINNED = 1;
+    /**
+     * 牵制标记：空格子在将/帅与对方炮之间（中间没有炮架），走到这里会成为炮架
+     */
+    private static final int CANNON_LINE = 2;
+    /**
+     * 直线方向（棋盘数组中的偏移）
+     */
+    private static final int[] LINE_DIRECTIONS = {-BoardUtil.SQUARE_ROW_WIDTH, -1, BoardUtil.SQUARE_ROW_WIDTH, 1};
+    /**
+     * 斜线方向（棋盘数组中的偏移）
+     */
+    private static final int[] DIAGONAL_DIRECTIONS = {-BoardUtil.SQUARE_ROW_WIDTH - 1, -BoardUtil.SQUARE_ROW_WIDTH + 1,
+            BoardUtil.SQUARE_ROW_WIDTH - 1, BoardUtil.SQUARE_ROW_WIDTH + 1};
+    /**
+     * 从被攻击的格子看，可以攻击它的马所在的方向
+     */
+    private static final int[] HORSE_ATTACK_DIRECTIONS = {
+            -2 * BoardUtil.SQUARE_ROW_WIDTH - 1, -2 * BoardUtil.SQUARE_ROW_WIDTH + 1, -BoardUtil.SQUARE_ROW_WIDTH - 2, BoardUtil.SQUARE_ROW_WIDTH - 2,
+            2 * BoardUtil.SQUARE_ROW_WIDTH - 1, 2 * BoardUtil.SQUARE_ROW_WIDTH + 1, -BoardUtil.SQUARE_ROW_WIDTH + 2, BoardUtil.SQUARE_ROW_WIDTH + 2};
+    /**
+     * 与{@link #HORSE_ATTACK_DIRECTIONS}对应的马腿方向，即被攻击的格子与马之间的斜向相邻格子
+     */
+    private static final int[] HORSE_ATTACK_LEGS = {
+            -BoardUtil.SQUARE_ROW_WIDTH - 1, -BoardUtil.SQUARE_ROW_WIDTH + 1, -BoardUtil.SQUARE_ROW_WIDTH - 1, BoardUtil.SQUARE_ROW_WIDTH - 1,
+            BoardUtil.SQUARE_ROW_WIDTH - 1, BoardUtil.SQUARE_ROW_WIDTH + 1, -BoardUtil.SQUARE_ROW_WIDTH + 1, BoardUtil.SQUARE_ROW_WIDTH + 1};
     private static final Zobrist ZOBRIST = new Zobrist();
 
-    private final List<Point> points;
-    private final List<PlayerInfo> playerInfoHistory;
-    private PlayerInfo playerInfo;
+    /**
+     * 带哨兵边界的棋盘数组，存放每个格子上的棋子编码
+     */
+    private final int[] squares;
+    /**
+     * 与棋盘数组对应的棋子对象
+     */
+    private final Piece[] pieces;
+    /**
+     * 棋子列表：每个槽位上棋子所在的格子，0表示该槽位的棋子已被吃（红方0-15，黑方16-31）
+     */
+    private final int[] slotSquares;
+    /**
+     * 每个格子上棋子所在的槽位，-1表示没有棋子
+     */
+    private final int[] squareSlots;
+    /**
+     * 撤销栈：每一步的走法编码和被吃棋子的槽位（见{@link #encodeUndo(int, int)}），以及走之前的Zobrist键值
+     */
+    private int[] undoEntries;
+    private long[] undoKeys;
+    private int undoCount;
+    /**
+     * 撤销栈之前的历史，不可变，可以在复制出的棋盘之间共享（见{@link #getCopy()}）。撤销栈为空时从这里继续撤销
+     */
+    private History history;
+    /**
+     * 按Zobrist键值低位索引的已出现局面的数量（包括当前局面），不超过1时当前局面一定没有重复，不需要扫描历史
+     */
+    private final int[] repetitionCounts;
+    /**
+     * 红方和黑方将/帅的槽位
+     */
+    private final int[] generalSlots;
+    /**
+     * 攻击表
+     */
+    private final AttackMap attackMap;
+    /**
+     * 按Zobrist键值缓存的当前玩家是否有合法走法
+     */
+    private long[] legalMoveCacheKeys;
+    private boolean[] legalMoveCacheValues;
+    /**
+     * 生成应将走法时使用：每个格子作为目标格子、源格子（炮架）可以化解的将军数量，以及被标记过的格子
+     */
+    private final int[] evasionDestCounts;
+    private final int[] evasionSrcCounts;
+    private final int[] markedSquares;
+    /**
+     * 生成合法走法时使用：每个格子的牵制标记（见{@link #PINNED}和{@link #CANNON_LINE}），以及过滤前的走法列表
+     */
+    private final int[] pinMarks;
+    private final MoveList pseudoLegalMoves;
+    /**
+     * 棋盘数组之上的只读点位视图，按需创建
+     */
+    private final Point[] points;
+    /**
+     * 双方玩家，按需创建，走子和撤销后失效
+     */
+    private Player redPlayer;
+    private Player blackPlayer;
     private Alliance currTurn;
     /**
      * Zobrist键值
      */
     private long zobristKey;
+    /**
+     * 初始局面的半回合数（从0开始）和距上次吃子的半回合数，来自FEN（见{@link #fromFen(String)}）
+     */
+    private final int startPly;
+    private final int startHalfmoveClock;
 
     /**
      * 构造
@@ -46,29 +188,91 @@ public class Board {
      * @param builder 棋盘构造器
      */
     private Board(Builder builder) {
-        points = createBoard(builder);
-        playerInfoHistory = new ArrayList<>();
-        playerInfo = generatePlayerInfo();
-        currTurn = builder.currTurn;
-        zobristKey = ZOBRIST.getKey(points, currTurn);
+        this(builder.getBoardPieces(), builder.currTurn, 0, 0);
     }
 
     /**
-     * Returns a list of points representing a board based on the given builder.
+     * 构造
+     *
+     * @param boardPieces        按位置索引（见{@link BoardUtil#positionToIndex(int, int)}）的棋子，没有棋子时为null
+     * @param currTurn           当前回合所属阵营
+     * @param startPly           初始局面的半回合数
+     * @param startHalfmoveClock 初始局面距上次吃子的半回合数
      */
-    private static List<Point> createBoard(Builder builder) {
-        List<Point> points = new ArrayList<>();
-
+    private Board(Piece[] boardPieces, Alliance currTurn, int startPly, int startHalfmoveClock) {
+        squares = new int[BoardUtil.NUM_SQUARES];
+        pieces = new Piece[BoardUtil.NUM_SQUARES];
+        slotSquares = new int[NUM_SLOTS_PER_SIDE * 2];
+        squareSlots = new int[BoardUtil.NUM_SQUARES];
+        undoEntries = new int[UNDO_STACK_SIZE];
+        undoKeys = new long[UNDO_STACK_SIZE];
+        Arrays.fill(squares, OFFBOARD);
+        generalSlots = new int[]{-1, -1};
+        Arrays.fill(squareSlots, -1);
+
+        points = new Point[NUM_ROWS * NUM_COLS];
+        int redSlot = 0;
+        int blackSlot = NUM_SLOTS_PER_SIDE;
         for (int row = 0; row < NUM_ROWS; row++) {
             for (int col = 0; col < NUM_COLS; col++) {
-                Coordinate position = new Coordinate(row, col);
-                Point point = new Point(position);
-                point.setPiece(builder.boardConfig.get(position));
-                points.add(point);
+                int square = BoardUtil.toSquare(row, col);
+                squares[square] = EMPTY;
+
+                // 按棋盘顺序为棋子分配槽位
+                Piece piece = boardPieces[BoardUtil.positionToIndex(row, col)];
+                if (piece == null) continue;
+                if (piece.getAlliance().isRed() ? redSlot == NUM_SLOTS_PER_SIDE : blackSlot == NUM_SLOTS_PER_SIDE * 2) {
+                    throw new IllegalArgumentException("Too many " + piece.getAlliance() + " pieces");
+                }
+                int slot = piece.getAlliance().isRed() ? redSlot++ : blackSlot++;
+                putPiece(square, piece, slot);
+                if (piece.getPieceType() == PieceType.GENERAL) {
+                    generalSlots[piece.getAlliance().isRed() ? 0 : 1] = slot;
+                }
             }
         }
+        attackMap = new AttackMap(this);
+        evasionDestCounts = new int[BoardUtil.NUM_SQUARES];
+        evasionSrcCounts = new int[BoardUtil.NUM_SQUARES];
+        markedSquares = new int[BoardUtil.NUM_SQUARES];
+        pinMarks = new int[BoardUtil.NUM_SQUARES];
+        pseudoLegalMoves = new MoveList();
+
+        this.currTurn = currTurn;
+        zobristKey = ZOBRIST.getKey(squares, currTurn);
+        repetitionCounts = new int[REPETITION_TABLE_SIZE];
+        repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)]++;
+        this.startPly = startPly;
+        this.startHalfmoveClock = startHalfmoveClock;
+    }
 
-        return Collections.unmodifiableList(points);
+    /**
+     * 复制构造：复制棋盘数组、棋子列表和攻击表，与给定棋盘共享不可变的历史
+     *
+     * @param board 被复制的棋盘
+     */
+    private Board(Board board) {
+        squares = board.squares.clone();
+        pieces = board.pieces.clone();
+        slotSquares = board.slotSquares.clone();
+        squareSlots = board.squareSlots.clone();
+        generalSlots = board.generalSlots.clone();
+        undoEntries = new int[UNDO_STACK_SIZE];
+        undoKeys = new long[UNDO_STACK_SIZE];
+        history = board.getHistory();
+        points = new Point[NUM_ROWS * NUM_COLS];
+        attackMap = new AttackMap(this, board.attackMap);
+        evasionDestCounts = new int[BoardUtil.NUM_SQUARES];
+        evasionSrcCounts = new int[BoardUtil.NUM_SQUARES];
+        markedSquares = new int[BoardUtil.NUM_SQUARES];
+        pinMarks = new int[BoardUtil.NUM_SQUARES];
+        pseudoLegalMoves = new MoveList();
+
+        currTurn = board.currTurn;
+        zobristKey = board.zobristKey;
+        repetitionCounts = board.repetitionCounts.clone();
+        startPly = board.startPly;
+        startHalfmoveClock = board.startHalfmoveClock;
     }
 
     /**
@@ -79,227 +283,808 @@ public class Board {
     public static Board initialiseBoard() {
         Builder builder = new Builder();
 
-        builder.putPiece(new Chariot(new Coordinate(0, 0), Alliance.BLACK)) // 车
-                .putPiece(new Horse(new Coordinate(0, 1), Alliance.BLACK)) // 马
-                .putPiece(new Elephant(new Coordinate(0, 2), Alliance.BLACK)) // 象/相
-                .putPiece(new Advisor(new Coordinate(0, 3), Alliance.BLACK)) // 士/仕
-                .putPiece(new General(new Coordinate(0, 4), Alliance.BLACK)) // 将/帅
-                .putPiece(new Advisor(new Coordinate(0, 5), Alliance.BLACK)) // 士/仕
-                .putPiece(new Elephant(new Coordinate(0, 6), Alliance.BLACK)) // 象/相
-                .putPiece(new Horse(new Coordinate(0, 7), Alliance.BLACK)) // 马
-                .putPiece(new Chariot(new Coordinate(0, 8), Alliance.BLACK)) // 车
-                .putPiece(new Cannon(new Coordinate(2, 1), Alliance.BLACK)) // 炮
-                .putPiece(new Cannon(new Coordinate(2, 7), Alliance.BLACK)) // 炮
-                .putPiece(new Soldier(new Coordinate(3, 0), Alliance.BLACK)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(3, 2), Alliance.BLACK)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(3, 4), Alliance.BLACK)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(3, 6), Alliance.BLACK)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(3, 8), Alliance.BLACK)); // 卒/兵
-
-        builder.putPiece(new Chariot(new Coordinate(9, 0), Alliance.RED)) // 车
-                .putPiece(new Horse(new Coordinate(9, 1), Alliance.RED)) // 马
-                .putPiece(new Elephant(new Coordinate(9, 2), Alliance.RED)) // 象/相
-                .putPiece(new Advisor(new Coordinate(9, 3), Alliance.RED)) // 士/仕
-                .putPiece(new General(new Coordinate(9, 4), Alliance.RED)) // 将/帅
-                .putPiece(new Advisor(new Coordinate(9, 5), Alliance.RED)) // 士/仕
-                .putPiece(new Elephant(new Coordinate(9, 6), Alliance.RED)) // 象/相
-                .putPiece(new Horse(new Coordinate(9, 7), Alliance.RED)) // 马
-                .putPiece(new Chariot(new Coordinate(9, 8), Alliance.RED)) // 车
-                .putPiece(new Cannon(new Coordinate(7, 1), Alliance.RED)) // 炮
-                .putPiece(new Cannon(new Coordinate(7, 7), Alliance.RED)) // 炮
-                .putPiece(new Soldier(new Coordinate(6, 0), Alliance.RED)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(6, 2), Alliance.RED)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(6, 4), Alliance.RED)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(6, 6), Alliance.RED)) // 卒/兵
-                .putPiece(new Soldier(new Coordinate(6, 8), Alliance.RED)); // 卒/兵
+        builder.putPiece(Piece.of(PieceType.CHARIOT, Alliance.BLACK, Coordinate.of(0, 0))) // 车
+                .putPiece(Piece.of(PieceType.HORSE, Alliance.BLACK, Coordinate.of(0, 1))) // 马
+                .putPiece(Piece.of(PieceType.ELEPHANT, Alliance.BLACK, Coordinate.of(0, 2))) // 象/相
+                .putPiece(Piece.of(PieceType.ADVISOR, Alliance.BLACK, Coordinate.of(0, 3))) // 士/仕
+                .putPiece(Piece.of(PieceType.GENERAL, Alliance.BLACK, Coordinate.of(0, 4))) // 将/帅
+                .putPiece(Piece.of(PieceType.ADVISOR, Alliance.BLACK, Coordinate.of(0, 5))) // 士/仕
+                .putPiece(Piece.of(PieceType.ELEPHANT, Alliance.BLACK, Coordinate.of(0, 6))) // 象/相
+                .putPiece(Piece.of(PieceType.HORSE, Alliance.BLACK, Coordinate.of(0, 7))) // 马
+                .putPiece(Piece.of(PieceType.CHARIOT, Alliance.BLACK, Coordinate.of(0, 8))) // 车
+                .putPiece(Piece.of(PieceType.CANNON, Alliance.BLACK, Coordinate.of(2, 1))) // 炮
+                .putPiece(Piece.of(PieceType.CANNON, Alliance.BLACK, Coordinate.of(2, 7))) // 炮
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.BLACK, Coordinate.of(3, 0))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.BLACK, Coordinate.of(3, 2))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.BLACK, Coordinate.of(3, 4))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.BLACK, Coordinate.of(3, 6))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.BLACK, Coordinate.of(3, 8))); // 卒/兵
+
+        builder.putPiece(Piece.of(PieceType.CHARIOT, Alliance.RED, Coordinate.of(9, 0))) // 车
+                .putPiece(Piece.of(PieceType.HORSE, Alliance.RED, Coordinate.of(9, 1))) // 马
+                .putPiece(Piece.of(PieceType.ELEPHANT, Alliance.RED, Coordinate.of(9, 2))) // 象/相
+                .putPiece(Piece.of(PieceType.ADVISOR, Alliance.RED, Coordinate.of(9, 3))) // 士/仕
+                .putPiece(Piece.of(PieceType.GENERAL, Alliance.RED, Coordinate.of(9, 4))) // 将/帅
+                .putPiece(Piece.of(PieceType.ADVISOR, Alliance.RED, Coordinate.of(9, 5))) // 士/仕
+                .putPiece(Piece.of(PieceType.ELEPHANT, Alliance.RED, Coordinate.of(9, 6))) // 象/相
+                .putPiece(Piece.of(PieceType.HORSE, Alliance.RED, Coordinate.of(9, 7))) // 马
+                .putPiece(Piece.of(PieceType.CHARIOT, Alliance.RED, Coordinate.of(9, 8))) // 车
+                .putPiece(Piece.of(PieceType.CANNON, Alliance.RED, Coordinate.of(7, 1))) // 炮
+                .putPiece(Piece.of(PieceType.CANNON, Alliance.RED, Coordinate.of(7, 7))) // 炮
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.RED, Coordinate.of(6, 0))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.RED, Coordinate.of(6, 2))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.RED, Coordinate.of(6, 4))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.RED, Coordinate.of(6, 6))) // 卒/兵
+                .putPiece(Piece.of(PieceType.SOLDIER, Alliance.RED, Coordinate.of(6, 8))); // 卒/兵
 
         builder.setCurrTurn(Alliance.RED);
 
         return builder.build();
     }
 
-
+
+    /**
+     * 在这个棋盘上做出给定的移动，玩家信息和Zobrist键值更新
+     *
+     * @param move 要走的一步
+     */
+    public void makeMove(Move move) {
+        makeMove(move.toInt());
+    }
+
+    /**
+     * 在这个棋盘上做出给定编码的移动，玩家信息和Zobrist键值更新
+     *
+     * @param move 要走的一步的编码（见{@link Move#encode(int, int, int, int)}）
+     */
+    public void makeMove(int move) {
+        // 当前位置
+        int srcSquare = Move.getSrcSquare(move);
+        // 目标位置
+        int destSquare = Move.getDestSquare(move);
+
+        // 可到达的格子可能改变的棋子
+        int dirtySlots = attackMap.getDependents(srcSquare) | attackMap.getDependents(destSquare);
+
+        // 走法、被吃的棋子的槽位和Zobrist键值入栈保存
+        if (undoCount == undoEntries.length) {
+            undoEntries = Arrays.copyOf(undoEntries, undoCount * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoCount * 2);
+        }
+        int capturedSlot = squareSlots[destSquare];
+        undoEntries[undoCount] = encodeUndo(move, capturedSlot);
+        undoKeys[undoCount++] = zobristKey;
+        if (capturedSlot >= 0) {
+            slotSquares[capturedSlot] = 0;
+            dirtySlots |= 1 << capturedSlot;
+        }
+        // 源位置移除棋子，目标位置添加落子后的棋子对象
+        int slot = squareSlots[srcSquare];
+        removePiece(srcSquare);
+        putPiece(destSquare, Piece.of(Move.getMovedCode(move), destSquare), slot);
+        // 更新攻击表
+        attackMap.update(dirtySlots | 1 << slot);
+        assert attackMap.isConsistent();
+
+        // 玩家信息失效
+        redPlayer = null;
+        blackPlayer = null;
+        // 变更当前落子对象
+        changeTurn();
+        // 更新Zobrist键值
+        zobristKey = ZOBRIST.updateKey(zobristKey, move);
+        repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)]++;
+    }
+
+    /**
+     * 撤销棋盘上的给定走法。玩家信息和Zobrist键被更新。
+     *
+     * @param move 被撤销的动作.
+     */
+    public void unmakeMove(Move move) {
+        unmakeMove(move.toInt());
+    }
+
+    /**
+     * 撤销棋盘上的给定编码的走法。玩家信息和Zobrist键被更新。
+     *
+     * @param move 被撤销的动作的编码
+     */
+    public void unmakeMove(int move) {
+        int undoEntry;
+        long undoKey;
+        if (undoCount > 0) {
+            undoEntry = undoEntries[--undoCount];
+            undoKey = undoKeys[undoCount];
+        } else {
+            // 撤销到复制之前的历史
+            undoEntry = history.undoEntry;
+            undoKey = history.key;
+            history = history.previous;
+        }
+        assert (undoEntry & UNDO_MOVE_MASK) == move;
+        // 当前位置
+        int srcSquare = Move.getSrcSquare(move);
+        // 目标位置
+        int destSquare = Move.getDestSquare(move);
+
+        // 可到达的格子可能改变的棋子
+        int dirtySlots = attackMap.getDependents(srcSquare) | attackMap.getDependents(destSquare);
+
+        // 源位置还原移动的棋子，目标位置移除棋子
+        int slot = squareSlots[destSquare];
+        removePiece(destSquare);
+        putPiece(srcSquare, Piece.of(Move.getMovedCode(move), srcSquare), slot);
+        // 被吃棋子存在则复原
+        if (Move.isCapture(move)) {
+            int capturedSlot = undoEntry >>> UNDO_SLOT_SHIFT;
+            putPiece(destSquare, Piece.of(Move.getCapturedCode(move), destSquare), capturedSlot);
+            dirtySlots |= 1 << capturedSlot;
+        }
+        // 更新攻击表
+        attackMap.update(dirtySlots | 1 << slot);
+        assert attackMap.isConsistent();
+
+        // 玩家信息失效
+        redPlayer = null;
+        blackPlayer = null;
+        // 变更当前落子对象
+        currTurn = currTurn.opposite();
+        // 恢复Zobrist键值
+        repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)]--;
+        zobristKey = undoKey;
+    }
+
+    /**
+     * 走一步空着：不移动棋子，只变更当前落子对象。与普通走法一样入撤销栈（走法编码为{@link Move#NULL_MOVE}），
+     * 玩家信息和Zobrist键值更新
+     */
+    public void makeNullMove() {
+        if (undoCount == undoEntries.length) {
+            undoEntries = Arrays.copyOf(undoEntries, undoCount * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoCount * 2);
+        }
+        undoEntries[undoCount] = encodeUndo(Move.NULL_MOVE, -1);
+        undoKeys[undoCount++] = zobristKey;
+
+        redPlayer = null;
+        blackPlayer = null;
+        changeTurn();
+        repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)]++;
+    }
+
+    /**
+     * 撤销上一步空着
+     */
+    public void unmakeNullMove() {
+        assert undoCount > 0 && undoEntries[undoCount - 1] == Move.NULL_MOVE;
+        repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)]--;
+        zobristKey = undoKeys[--undoCount];
+        redPlayer = null;
+        blackPlayer = null;
+        currTurn = currTurn.opposite();
+    }
+
+    /**
+     * 检查当前局面是否可以走空着：上一步不是空着，当前玩家没有被将军，并且车、马、炮足够多，不容易出现等着的局面
+     *
+     * @return true, 可以走空着，否则，false
+     */
+    public boolean isNullMoveAllowed() {
+        if ((undoCount > 0 && undoEntries[undoCount - 1] == Move.NULL_MOVE) || isInCheck(currTurn)) {
+            return false;
+        }
+        int valueUnits = 0;
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            if (slotSquares[slot] != 0) {
+                valueUnits += codeToPieceType(squares[slotSquares[slot]]).getValueUnits();
+            }
+        }
+        return valueUnits >= NULL_MOVE_MIN_VALUE_UNITS;
+    }
+
+    /**
+     * 检查当前局面是否与之前的局面重复（中间没有吃子和空着），重复时按长将、长捉判定结果
+     * <p>
+     * 先查重复局面计数表，没有可能重复时直接返回；否则沿撤销栈和共享的历史向前扫描同一方走棋的局面。
+     * 找到重复后才分析这个循环中双方的走法：一方每步都将军为长将，每步都捉同一个棋子为长捉。
+     * 单方面长将判负；双方都不长将时，单方面长捉判负；其余为和棋。
+     *
+     * @return 重复的结果，从当前玩家的角度
+     */
+    public Repetition getRepetition() {
+        if (repetitionCounts[(int) zobristKey & (REPETITION_TABLE_SIZE - 1)] < 2) {
+            return Repetition.NONE;
+        }
+
+        int index = undoCount;
+        History entry = history;
+        for (int plies = 1; ; plies++) {
+            int undoEntry;
+            long key;
+            if (index > 0) {
+                undoEntry = undoEntries[--index];
+                key = undoKeys[index];
+            } else if (entry != null) {
+                undoEntry = entry.undoEntry;
+                key = entry.key;
+                entry = entry.previous;
+            } else {
+                return Repetition.NONE;
+            }
+            // 吃子和空着之前的局面不可能再出现
+            int move = undoEntry & UNDO_MOVE_MASK;
+            if (move == Move.NULL_MOVE || Move.isCapture(move)) {
+                return Repetition.NONE;
+            }
+            if (plies % 2 == 0 && key == zobristKey) {
+                return getRepetition(plies);
+            }
+        }
+    }
+
+    /**
+     * 撤销构成循环的最近给定步数，再逐步重走，记录双方每一步是否将军以及新捉的棋子，最后判定结果
+     */
+    private Repetition getRepetition(int plies) {
+        int[] moves = new int[plies];
+        for (int i = 0; i < plies; i++) {
+            moves[i] = getLastMove();
+            unmakeMove(moves[i]);
+        }
+
+        // 下标0为当前玩家，1为对手
+        boolean[] checks = {true, true};
+        int[] chases = {-1, -1};
+        for (int i = plies - 1; i >= 0; i--) {
+            int side = i % 2 == 0 ? 1 : 0;
+            int slot = squareSlots[Move.getSrcSquare(moves[i])];
+            int attackedSlots = getAttackedSlots(slot);
+            makeMove(moves[i]);
+            if (isInCheck(currTurn)) {
+                chases[side] = 0;
+            } else {
+                checks[side] = false;
+                chases[side] &= getChasedSlots(slot) & ~attackedSlots;
+            }
+        }
+
+        if (checks[0] != checks[1]) {
+            return checks[0] ? Repetition.LOSS : Repetition.WIN;
+        }
+        boolean isChasing = chases[0] != 0;
+        if (!checks[0] && isChasing != (chases[1] != 0)) {
+            return isChasing ? Repetition.LOSS : Repetition.WIN;
+        }
+        return Repetition.DRAW;
+    }
+
+    /**
+     * 返回给定槽位上的棋子可以吃的对方棋子的槽位掩码
+     */
+    private int getAttackedSlots(int slot) {
+        int code = squares[slotSquares[slot]];
+        int attackedSlots = 0;
+        for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+            int square = attackMap.getReachableSquare(slot, i);
+            int targetCode = squares[square];
+            if (targetCode != EMPTY && ((targetCode ^ code) & BLACK_FLAG) != 0) {
+                attackedSlots |= 1 << squareSlots[square];
+            }
+        }
+        return attackedSlots;
+    }
+
+    /**
+     * 返回给定槽位上的棋子捉的对方棋子的槽位掩码：没有保护或者价值更高的棋子，不包括将/帅和没过河的卒/兵。
+     * 将/帅和卒/兵走子不算捉
+     */
+    private int getChasedSlots(int slot) {
+        int code = squares[slotSquares[slot]];
+        PieceType pieceType = codeToPieceType(code);
+        if (pieceType == PieceType.GENERAL || pieceType == PieceType.SOLDIER) {
+            return 0;
+        }
+
+        int chasedSlots = 0;
+        for (int attackedSlots = getAttackedSlots(slot); attackedSlots != 0; attackedSlots &= attackedSlots - 1) {
+            int targetSlot = Integer.numberOfTrailingZeros(attackedSlots);
+            int square = slotSquares[targetSlot];
+            int targetCode = squares[square];
+            PieceType targetType = codeToPieceType(targetCode);
+            Alliance targetAlliance = (targetCode & BLACK_FLAG) == 0 ? Alliance.RED : Alliance.BLACK;
+            if (targetType == PieceType.GENERAL) continue;
+            if (targetType == PieceType.SOLDIER) {
+                int row = BoardUtil.squareToRow(square);
+                if (targetAlliance.isRed() ? row >= RIVER_ROW_RED : row <= RIVER_ROW_BLACK) continue;
+            }
+            boolean isDefended = (attackMap.getAttackers(square) & getSlotMask(targetAlliance)) != 0;
+            if (!isDefended || targetType.getValueUnits() > pieceType.getValueUnits()) {
+                chasedSlots |= 1 << targetSlot;
+            }
+        }
+        return chasedSlots;
+    }
+
+    /**
+     * 返回包含撤销栈在内的全部历史。撤销栈中的项移入不可变的历史后清空，所以之后的复制不再重复转换
+     */
+    private History getHistory() {
+        for (int i = 0; i < undoCount; i++) {
+            history = new History(undoEntries[i], undoKeys[i], history);
+        }
+        undoCount = 0;
+        return history;
+    }
+
+    /**
+     * 返回已走的步数（包括复制之前的历史）
+     */
+    private int getHistorySize() {
+        return undoCount + (history == null ? 0 : history.size);
+    }
+
+    /**
+     * 返回最后一步的走法编码
+     */
+    private int getLastMove() {
+        return (undoCount > 0 ? undoEntries[undoCount - 1] : history.undoEntry) & UNDO_MOVE_MASK;
+    }
+
+    /**
+     * 将走法编码和被吃棋子的槽位（没有时为-1）编码为撤销栈的一项：低24位为走法编码，高位为槽位
+     */
+    private static int encodeUndo(int move, int capturedSlot) {
+        return move | (capturedSlot < 0 ? 0 : capturedSlot << UNDO_SLOT_SHIFT);
+    }
+
+    /**
+     * 生成当前玩家的全部走法（不检查是否送将）的编码，按棋子列表的顺序填充到给定的走法列表中
+     *
+     * @param moves 要填充的走法列表，会先被清空
+     */
+    public void generateMoves(MoveList moves) {
+        moves.clear();
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            // 攻击表中缓存的可到达格子，去掉己方棋子所在的格子
+            int code = squares[srcSquare];
+            for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+                int destSquare = attackMap.getReachableSquare(slot, i);
+                int destCode = squares[destSquare];
+                if (destCode == EMPTY || ((destCode ^ code) & BLACK_FLAG) != 0) {
+                    moves.add(Move.encode(srcSquare, destSquare, code, destCode));
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成当前玩家被将军时的应将走法：将/帅的走法、吃掉将军的棋子、在将军的线路上垫子（包括给炮再加一个炮架）、
+     * 移开炮架以及蹩住将军的马的马腿。有多个棋子同时将军时，只保留可能同时化解所有将军的走法（通常只剩将/帅的走法）。
+     * <p>
+     * 生成的走法仍可能送将（例如被牵制的棋子垫子），但不会漏掉任何合法的应将走法，顺序与{@link #generateMoves(MoveList)}一致。
+     *
+     * @param moves 要填充的走法列表，会先被清空
+     */
+    public void generateEvasions(MoveList moves) {
+        moves.clear();
+        int generalSlot = generalSlots[currTurn.isRed() ? 0 : 1];
+        int generalSquare = slotSquares[generalSlot];
+        int checkers = attackMap.getAttackers(generalSquare) & getSlotMask(currTurn.opposite());
+        int checkerCount = Integer.bitCount(checkers);
+
+        // 标记每个将军的棋子可以被化解的目标格子和炮架所在的源格子
+        int markedCount = 0;
+        for (int slots = checkers; slots != 0; slots &= slots - 1) {
+            int checkerSquare = slotSquares[Integer.numberOfTrailingZeros(slots)];
+            int checkerCode = squares[checkerSquare];
+            markedSquares[markedCount++] = checkerSquare;
+            evasionDestCounts[checkerSquare]++;
+
+            if (isPieceType(checkerCode, PieceType.HORSE)) {
+                // 马腿是马与将/帅之间的斜向相邻格子
+                for (int i = 0; i < HORSE_ATTACK_DIRECTIONS.length; i++) {
+                    if (generalSquare + HORSE_ATTACK_DIRECTIONS[i] == checkerSquare) {
+                        int legSquare = generalSquare + HORSE_ATTACK_LEGS[i];
+                        markedSquares[markedCount++] = legSquare;
+                        evasionDestCounts[legSquare]++;
+                    }
+                }
+            } else if (!isPieceType(checkerCode, PieceType.SOLDIER)) {
+                // 车、炮、将/帅：将军线路上的格子，空格子可以垫子，棋子（炮架）可以移开
+                int direction = getLineDirection(generalSquare, checkerSquare);
+                for (int square = generalSquare + direction; square != checkerSquare; square += direction) {
+                    markedSquares[markedCount++] = square;
+                    if (squares[square] == EMPTY) {
+                        evasionDestCounts[square]++;
+                    } else {
+                        evasionSrcCounts[square]++;
+                    }
+                }
+            }
+        }
+
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            int code = squares[srcSquare];
+            for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+                int destSquare = attackMap.getReachableSquare(slot, i);
+                int destCode = squares[destSquare];
+                if ((destCode == EMPTY || ((destCode ^ code) & BLACK_FLAG) != 0)
+                        && (slot == generalSlot || evasionDestCounts[destSquare] + evasionSrcCounts[srcSquare] >= checkerCount)) {
+                    moves.add(Move.encode(srcSquare, destSquare, code, destCode));
+                }
+            }
+        }
+
+        for (int i = 0; i < markedCount; i++) {
+            evasionDestCounts[markedSquares[i]] = 0;
+            evasionSrcCounts[markedSquares[i]] = 0;
+        }
+    }
+
+    /**
+     * 返回从给定格子指向同一行或同一列上另一格子的单位方向
+     */
+    private static int getLineDirection(int srcSquare, int destSquare) {
+        if (BoardUtil.squareToRow(srcSquare) == BoardUtil.squareToRow(destSquare)) {
+            return destSquare > srcSquare ? 1 : -1;
+        }
+        return destSquare > srcSquare ? BoardUtil.SQUARE_ROW_WIDTH : -BoardUtil.SQUARE_ROW_WIDTH;
+    }
+
+    /**
+     * 生成当前玩家的全部吃子走法（不检查是否送将），并按MVV-LVA计算排序分值：移动的棋子的价值减去被吃棋子的价值，
+     * 越小越靠前（{@link MoveList#sort()}从小到大排序），即被吃棋子价值高、移动的棋子价值低的走法在前。价值为结合位置的中局价值
+     *
+     * @param moves 要填充的走法列表，会先被清空
+     */
+    public void generateCaptures(MoveList moves) {
+        moves.clear();
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            int code = squares[srcSquare];
+            for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+                int destSquare = attackMap.getReachableSquare(slot, i);
+                int destCode = squares[destSquare];
+                if (destCode != EMPTY && ((destCode ^ code) & BLACK_FLAG) != 0) {
+                    moves.add(Move.encode(srcSquare, destSquare, code, destCode),
+                            Piece.getMidgameValue(code, srcSquare) - Piece.getMidgameValue(destCode, destSquare));
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成当前玩家的全部合法走法（不会送将），顺序与{@link #generateMoves(MoveList)}一致
+     * <p>
+     * 不试走，而是先计算己方将/帅所受的牵制（见{@link #markPins(int)}）：没被牵制的棋子的走法除了走到炮的将军线路上，
+     * 都是合法的；只有将/帅和被牵制的棋子的走法需要在棋盘数组上探测。被将军时从应将走法中过滤。
+     *
+     * @param moves 要填充的走法列表，会先被清空
+     */
+    public void generateLegalMoves(MoveList moves) {
+        if (isInCheck(currTurn)) {
+            generateEvasions(pseudoLegalMoves);
+        } else {
+            generateMoves(pseudoLegalMoves);
+        }
+        filterLegalMoves(moves);
+        assert isLegalGenerationConsistent(moves, false);
+    }
+
+    /**
+     * 生成当前玩家的全部合法吃子走法（不会送将），排序分值与{@link #generateCaptures(MoveList)}相同
+     *
+     * @param moves 要填充的走法列表，会先被清空
+     */
+    public void generateLegalCaptures(MoveList moves) {
+        generateCaptures(pseudoLegalMoves);
+        filterLegalMoves(moves);
+        assert isLegalGenerationConsistent(moves, true);
+    }
+
+    /**
+     * 将{@link #pseudoLegalMoves}中不送将的走法连同排序分值填充到给定的走法列表中
+     */
+    private void filterLegalMoves(MoveList moves) {
+        moves.clear();
+        int generalSlot = generalSlots[currTurn.isRed() ? 0 : 1];
+        boolean isInCheck = isInCheck(currTurn);
+        int markedCount = isInCheck ? 0 : markPins(slotSquares[generalSlot]);
+
+        for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+            int move = pseudoLegalMoves.get(i);
+            int srcSquare = Move.getSrcSquare(move);
+            int destSquare = Move.getDestSquare(move);
+            boolean isLegal = isInCheck || squareSlots[srcSquare] == generalSlot || (pinMarks[srcSquare] & PINNED) != 0
+                    ? isLegal(srcSquare, destSquare) : (pinMarks[destSquare] & CANNON_LINE) == 0;
+            if (isLegal) {
+                moves.add(move, pseudoLegalMoves.getScore(i));
+            }
+        }
+
+        for (int i = 0; i < markedCount; i++) {
+            pinMarks[markedSquares[i]] = 0;
+        }
+    }
+
+    /**
+     * 标记当前玩家（未被将军）的将/帅所受的牵制，被标记的格子记录在{@link #markedSquares}中：
+     * <ul>
+     * <li>将/帅与对方车、将/帅之间唯一的己方棋子</li>
+     * <li>将/帅与对方炮之间的两个棋子中的己方棋子（离开或吃掉另一个炮架都会只剩一个炮架）</li>
+     * <li>将/帅与对方炮之间没有棋子时，中间的空格子（垫子会成为炮架）</li>
+     * <li>将军的对方马的马腿上的己方棋子</li>
+     * </ul>
+     *
+     * @param generalSquare 当前玩家将/帅所在的格子
+     * @return 被标记的格子数量
+     */
+    private int markPins(int generalSquare) {
+        Alliance opponent = currTurn.opposite();
+        int chariotCode = getCode(PieceType.CHARIOT, opponent);
+        int cannonCode = getCode(PieceType.CANNON, opponent);
+        int generalCode = getCode(PieceType.GENERAL, opponent);
+        int horseCode = getCode(PieceType.HORSE, opponent);
+        int markedCount = 0;
+
+        for (int direction : LINE_DIRECTIONS) {
+            int square1 = getNextOccupiedSquare(generalSquare, direction);
+            int code1 = squares[square1];
+            if (code1 == OFFBOARD) continue;
+            if (code1 == cannonCode) {
+                for (int square = generalSquare + direction; square != square1; square += direction) {
+                    pinMarks[square] |= CANNON_LINE;
+                    markedSquares[markedCount++] = square;
+                }
+            }
+
+            int square2 = getNextOccupiedSquare(square1, direction);
+            int code2 = squares[square2];
+            if (code2 == OFFBOARD) continue;
+            boolean isOwn1 = isAlliance(code1, currTurn);
+            if (isOwn1 && (code2 == chariotCode || code2 == generalCode)) {
+                pinMarks[square1] |= PINNED;
+                markedSquares[markedCount++] = square1;
+            }
+
+            int square3 = getNextOccupiedSquare(square2, direction);
+            if (squares[square3] == cannonCode) {
+                if (isOwn1) {
+                    pinMarks[square1] |= PINNED;
+                    markedSquares[markedCount++] = square1;
+                }
+                if (isAlliance(code2, currTurn)) {
+                    pinMarks[square2] |= PINNED;
+                    markedSquares[markedCount++] = square2;
+                }
+            }
+        }
+
+        for (int i = 0; i < HORSE_ATTACK_DIRECTIONS.length; i++) {
+            int legSquare = generalSquare + HORSE_ATTACK_LEGS[i];
+            if (squares[generalSquare + HORSE_ATTACK_DIRECTIONS[i]] == horseCode && isAlliance(squares[legSquare], currTurn)) {
+                pinMarks[legSquare] |= PINNED;
+                markedSquares[markedCount++] = legSquare;
+            }
+        }
+
+        return markedCount;
+    }
+
+    /**
+     * 从给定格子沿给定方向返回第一个有棋子的格子，没有时返回棋盘外的格子
+     */
+    private int getNextOccupiedSquare(int square, int direction) {
+        int currSquare = square + direction;
+        while (squares[currSquare] == EMPTY) {
+            currSquare += direction;
+        }
+        return currSquare;
+    }
+
+    /**
+     * 检查给定的棋子编码是否为给定阵营的棋子
+     */
+    private static boolean isAlliance(int code, Alliance alliance) {
+        return code != EMPTY && code != OFFBOARD && ((code & BLACK_FLAG) == 0) == alliance.isRed();
+    }
+
+    /**
+     * 检查合法走法是否与全部走法逐个试走并用{@link #isStateAllowed()}过滤的结果相同（包括顺序）
+     *
+     * @param moves        生成的合法走法
+     * @param capturesOnly 是否只有吃子走法
+     * @return true, 相同，否则，false
+     */
+    private boolean isLegalGenerationConsistent(MoveList moves, boolean capturesOnly) {
+        MoveList allMoves = new MoveList();
+        if (capturesOnly) {
+            generateCaptures(allMoves);
+        } else {
+            generateMoves(allMoves);
+        }
+        int count = 0;
+        for (int i = 0; i < allMoves.size(); i++) {
+            int move = allMoves.get(i);
+            makeMove(move);
+            boolean isAllowed = isStateAllowed();
+            unmakeMove(move);
+            if (isAllowed && (count >= moves.size() || moves.get(count++) != move)) {
+                return false;
+            }
+        }
+        return count == moves.size();
+    }
+
+    /**
+     * 获取给定阵营可以活动的棋子，按棋子列表的顺序
+     *
+     * @param alliance 所属阵营（红方或黑方）
+     * @return 可以活动的棋子
+     */
+    public Collection<Piece> getActivePieces(Alliance alliance) {
+        List<Piece> activePieces = new ArrayList<>();
+        int firstSlot = alliance.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            if (slotSquares[slot] != 0) {
+                activePieces.add(pieces[slotSquares[slot]]);
+            }
+        }
+        return activePieces;
+    }
+
     /**
-     * 生成与此棋盘上两个玩家相关的信息
+     * 获取给定阵营在此棋盘上可以采取的合法走法（不检查是否送将），按棋子列表的顺序
      *
-     * @return 生成的玩家信息
+     * @param alliance 所属阵营（红方或黑方）
+     * @return 合法走法的集合
      */
-    private PlayerInfo generatePlayerInfo() {
-        Collection<Piece> redPieces = new ArrayList<>();
-        Collection<Move> redLegalMoves = new ArrayList<>();
-        int redMobilityValue = 0;
-        Collection<Attack> redAttacks = new ArrayList<>();
-        Collection<Defense> redDefenses = new ArrayList<>();
-
-        Collection<Piece> blackPieces = new ArrayList<>();
-        Collection<Move> blackLegalMoves = new ArrayList<>();
-        int blackMobilityValue = 0;
-        Collection<Attack> blackAttacks = new ArrayList<>();
-        Collection<Defense> blackDefenses = new ArrayList<>();
-
-        for (Point point : points) {
-            if (point.isEmpty()) continue;
-            Piece piece = point.getPiece().get();
-
-            if (piece.getAlliance().isRed()) {
-                redPieces.add(piece);
-                Collection<Move> moves = piece.getLegalMoves(this, redAttacks, redDefenses);
-                redLegalMoves.addAll(moves);
-                redMobilityValue += piece.getPieceType().getMobilityValue() * moves.size();
-            } else {
-                blackPieces.add(piece);
-                Collection<Move> moves = piece.getLegalMoves(this, blackAttacks, blackDefenses);
-                blackLegalMoves.addAll(moves);
-                blackMobilityValue += piece.getPieceType().getMobilityValue() * moves.size();
+    public Collection<Move> getLegalMoves(Alliance alliance) {
+        List<Move> legalMoves = new ArrayList<>();
+        int firstSlot = alliance.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            Piece piece = pieces[srcSquare];
+            for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+                int destSquare = attackMap.getReachableSquare(slot, i);
+                Piece destPiece = pieces[destSquare];
+                if (destPiece == null) {
+                    legalMoves.add(new Move(zobristKey, piece, BoardUtil.squareToPosition(destSquare)));
+                } else if (destPiece.getAlliance() != alliance) {
+                    legalMoves.add(new Move(zobristKey, piece, BoardUtil.squareToPosition(destSquare), destPiece));
+                }
             }
         }
-
-        Player redPlayer = new Player(Alliance.RED, redPieces, redLegalMoves, blackLegalMoves, redMobilityValue, redAttacks, redDefenses);
-        Player blackPlayer = new Player(Alliance.BLACK, blackPieces, blackLegalMoves, redLegalMoves, blackMobilityValue, blackAttacks, blackDefenses);
-        return new PlayerInfo(redPlayer, blackPlayer);
+        return legalMoves;
     }
 
     /**
-     * 从现有信息中更新与此棋盘上双方玩家相关的信息
+     * 获取当前玩家在此棋盘上可以采取的不送将的走法，按棋子列表的顺序
+     *
+     * @return 合法走法的集合
      */
-    private PlayerInfo updatePlayerInfo(Move move) {
-        Piece movedPiece = move.getMovedPiece();
-        Piece destPiece = movedPiece.movePiece(move);
-        Piece capturedPiece = move.isCapture() ? move.getCapturedPiece().get() : null;
-
-        Collection<Piece> redPieces = new ArrayList<>();
-        Collection<Move> redLegalMoves = new ArrayList<>();
-        int redMobilityValue = 0;
-        Collection<Attack> redAttacks = new ArrayList<>();
-        Collection<Defense> redDefenses = new ArrayList<>();
-
-        Collection<Piece> blackPieces = new ArrayList<>();
-        Collection<Move> blackLegalMoves = new ArrayList<>();
-        int blackMobilityValue = 0;
-        Collection<Attack> blackAttacks = new ArrayList<>();
-        Collection<Defense> blackDefenses = new ArrayList<>();
-
-        Player redPlayer = getPlayer(Alliance.RED);
-        Player blackPlayer = getPlayer(Alliance.BLACK);
-
-        for (Piece piece : redPlayer.getActivePieces()) {
-            if (piece.equals(movedPiece) || piece.equals(capturedPiece)) continue;
-            redPieces.add(piece);
-            Collection<Move> moves = piece.getLegalMoves(this, redAttacks, redDefenses);
-            redLegalMoves.addAll(moves);
-            redMobilityValue += piece.getPieceType().getMobilityValue() * moves.size();
-        }
-        for (Piece piece : blackPlayer.getActivePieces()) {
-            if (piece.equals(movedPiece) || piece.equals(capturedPiece)) continue;
-            blackPieces.add(piece);
-            Collection<Move> moves = piece.getLegalMoves(this, blackAttacks, blackDefenses);
-            blackLegalMoves.addAll(moves);
-            blackMobilityValue += piece.getPieceType().getMobilityValue() * moves.size();
-        }
-        if (destPiece.getAlliance().isRed()) {
-            redPieces.add(destPiece);
-            Collection<Move> moves = destPiece.getLegalMoves(this, redAttacks, redDefenses);
-            redLegalMoves.addAll(moves);
-            redMobilityValue += destPiece.getPieceType().getMobilityValue() * moves.size();
-        } else {
-            blackPieces.add(destPiece);
-            Collection<Move> moves = destPiece.getLegalMoves(this, blackAttacks, blackDefenses);
-            blackLegalMoves.addAll(moves);
-            blackMobilityValue += destPiece.getPieceType().getMobilityValue() * moves.size();
+    public Collection<Move> getCurrPlayerLegalMoves() {
+        MoveList moves = new MoveList();
+        generateLegalMoves(moves);
+        List<Move> legalMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            legalMoves.add(toMove(moves.get(i)));
         }
-
-        redPlayer = new Player(Alliance.RED, redPieces, redLegalMoves, blackLegalMoves, redMobilityValue, redAttacks, redDefenses);
-        blackPlayer = new Player(Alliance.BLACK, blackPieces, blackLegalMoves, redLegalMoves, blackMobilityValue, blackAttacks, blackDefenses);
-        return new PlayerInfo(redPlayer, blackPlayer);
+        return legalMoves;
     }
 
     /**
-     * 在这个棋盘上做出给定的移动，玩家信息和Zobrist键值更新
+     * 将当前棋盘上的走法编码转换为走法对象，供界面、开局库等需要走法对象的地方使用
      *
-     * @param move 要走的一步
+     * @param move 走法编码
+     * @return 对应的走法对象
      */
-    public void makeMove(Move move) {
-        // 移动的棋子
-        Piece movedPiece = move.getMovedPiece();
-        // 当前位置
-        Coordinate srcPosition = movedPiece.getPosition();
-        // 目录位置
-        Coordinate destPosition = move.getDestPosition();
-
-        Point srcPoint = points.get(BoardUtil.positionToIndex(srcPosition));
-        // 源位置移除棋子
-        srcPoint.removePiece();
-        Point destPoint = points.get(BoardUtil.positionToIndex(destPosition));
-        // 目标位置添加落子后的棋子对象
-        destPoint.setPiece(movedPiece.movePiece(move));
-
-        // 添加玩家信息
-        playerInfoHistory.add(playerInfo);
-        // 更新玩家信息
-        playerInfo = updatePlayerInfo(move);
-        // 变更当前落子对象
-        changeTurn();
-        // 更新Zobrist键值
-        zobristKey = ZOBRIST.updateKey(zobristKey, move);
+    public Move toMove(int move) {
+        int destSquare = Move.getDestSquare(move);
+        return new Move(zobristKey, pieces[Move.getSrcSquare(move)], BoardUtil.squareToPosition(destSquare),
+                Move.isCapture(move) ? pieces[destSquare] : null);
     }
 
     /**
-     * 撤销棋盘上的给定走法。玩家信息和Zobrist键被更新。
-     *
-     * @param move 被撤销的动作.
+     * 在给定格子上放置棋子，并记录其槽位
      */
-    public void unmakeMove(Move move) {
-        // 移动的棋子
-        Piece movedPiece = move.getMovedPiece();
-        // 被吃的棋子
-        Optional<Piece> capturedPiece = move.getCapturedPiece();
-        // 当前位置
-        Coordinate srcPosition = movedPiece.getPosition();
-        // 目录位置
-        Coordinate destPosition = move.getDestPosition();
-
-        Point srcPoint = points.get(BoardUtil.positionToIndex(srcPosition));
-        // 源位置还原移动的棋子
-        srcPoint.setPiece(movedPiece);
-        Point destPoint = points.get(BoardUtil.positionToIndex(destPosition));
-        // 目标位置移除棋子
-        destPoint.removePiece();
-        // 被吃棋子存在则复原
-        capturedPiece.ifPresent(destPoint::setPiece);
+    private void putPiece(int square, Piece piece, int slot) {
+        squares[square] = piece.getCode();
+        pieces[square] = piece;
+        squareSlots[square] = slot;
+        slotSquares[slot] = square;
+    }
 
-        // 更新玩家信息
-        playerInfo = playerInfoHistory.isEmpty() ? generatePlayerInfo() : playerInfoHistory.remove(playerInfoHistory.size() - 1);
-        // 变更当前落子对象
-        changeTurn();
-        // 更新Zobrist键值
-        zobristKey = ZOBRIST.updateKey(zobristKey, move);
+    /**
+     * 移除给定格子上的棋子
+     */
+    private void removePiece(int square) {
+        squares[square] = EMPTY;
+        pieces[square] = null;
+        squareSlots[square] = -1;
     }
 
     /**
      * 转变当前回合所属对象（变更当前落子对象）。Zobrist键已更新
      */
-    public void changeTurn() {
+    private void changeTurn() {
         currTurn = currTurn.opposite();
         zobristKey ^= ZOBRIST.side;
     }
 
     /**
-     * 获取此棋盘上给定的源位置和目标位置相对应的移动(如果有的话)
+     * 获取此棋盘上给定的源位置和目标位置相对应的合法移动(如果有的话)。位置不在棋盘上或走法送将时返回空
      *
      * @param srcPosition  给定的源位置
      * @param destPosition 目标位置
-     * @return 此棋盘上给定的源位置和目标位置相对应的移动
+     * @return 此棋盘上给定的源位置和目标位置相对应的合法移动
      */
     public Optional<Move> getMove(Coordinate srcPosition, Coordinate destPosition) {
-        // 遍历当前玩家在给定棋盘上可以采取的合法走法的集合
-        for (Move move : getCurrPlayer().getLegalMoves()) {
-            // 当前走法是合法的返回
-            if (move.getMovedPiece().getPosition().equals(srcPosition) && move.getDestPosition().equals(destPosition)) {
-                return Optional.of(move);
-            }
+        if (!BoardUtil.isWithinBounds(srcPosition) || !BoardUtil.isWithinBounds(destPosition)) {
+            return Optional.empty();
+        }
+        int srcSquare = BoardUtil.positionToSquare(srcPosition);
+        int destSquare = BoardUtil.positionToSquare(destPosition);
+        if (!isLegalMove(srcSquare, destSquare)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Move(zobristKey, pieces[srcSquare], destPosition, pieces[destSquare]));
+    }
+
+    /**
+     * 检查当前玩家从源格子走到目标格子是否符合棋子的走法（不检查是否送将）。
+     * 攻击表中缓存了每个棋子按其走法和当前的阻挡可以到达的格子，所以只需查一次，不需要生成走法
+     *
+     * @param srcSquare  源格子
+     * @param destSquare 目标格子
+     * @return true, 符合棋子的走法，否则，false
+     */
+    public boolean isPseudoLegalMove(int srcSquare, int destSquare) {
+        int slot = squareSlots[srcSquare];
+        if (slot < 0 || !isAlliance(squares[srcSquare], currTurn) || isAlliance(squares[destSquare], currTurn)) {
+            return false;
         }
-        // 不合法，直接返回空
-        return Optional.empty();
+        return (attackMap.getAttackers(destSquare) & (1 << slot)) != 0;
+    }
+
+    /**
+     * 检查当前玩家从源格子走到目标格子是否合法（符合棋子的走法且不送将）
+     *
+     * @param srcSquare  源格子
+     * @param destSquare 目标格子
+     * @return true, 合法，否则，false
+     */
+    public boolean isLegalMove(int srcSquare, int destSquare) {
+        return isPseudoLegalMove(srcSquare, destSquare) && isLegal(srcSquare, destSquare);
+    }
+
+    /**
+     * 检查走法编码在当前棋盘上是否合法，包括走动和被吃的棋子与棋盘一致。
+     * 用于验证来自置换表等不一定属于当前局面的走法
+     *
+     * @param move 走法编码
+     * @return true, 合法，否则，false
+     */
+    public boolean isLegalMove(int move) {
+        int srcSquare = Move.getSrcSquare(move);
+        int destSquare = Move.getDestSquare(move);
+        return Move.getMovedCode(move) == squares[srcSquare] && Move.getCapturedCode(move) == squares[destSquare]
+                && isLegalMove(srcSquare, destSquare);
     }
 
     /**
@@ -308,51 +1093,111 @@ public class Board {
      * @return 如果对手不处于受控状态，true，否则，false
      */
     public boolean isStateAllowed() {
-        return !getOppPlayer().isInCheck();
+        return !isInCheck(currTurn.opposite());
     }
 
     /**
-     * 检查当前玩家是否已被将死
+     * 检查当前玩家是否已被将死（包括困毙，即没有合法走法）
      *
      * @return 如果当前玩家已被将，则为true，否则为false.
      */
     public boolean isCurrPlayerCheckmated() {
-        // 默认为“将死”状态
-        boolean isCheckmated = true;
+        return !hasLegalMove();
+    }
 
-        // 遍历当前玩家所有可以采取的合法走法的集合
-        for (Move move : getCurrPlayer().getLegalMoves()) {
-            // 棋盘上做出给定的移动
-            makeMove(move);
-            // 非受控状态,设置为非“将死”状态
-            if (isStateAllowed()) {
-                isCheckmated = false;
+    /**
+     * 检查当前玩家是否有不送将的走法。找到第一个合法走法即返回，并按局面的Zobrist键值缓存结果
+     * <p>
+     * 未被将军时根据牵制判断走法的合法性（见{@link #generateLegalMoves(MoveList)}），将/帅和被牵制的棋子以及被将军时的走法
+     * 只在棋盘数组上临时走子并探测将/帅是否被攻击，不更新攻击表和玩家信息。被将军时先尝试将/帅自己的走法。
+     *
+     * @return 如果有合法走法，则为true，否则为false
+     */
+    public boolean hasLegalMove() {
+        int index = (int) zobristKey & (LEGAL_MOVE_CACHE_SIZE - 1);
+        if (legalMoveCacheKeys == null) {
+            legalMoveCacheKeys = new long[LEGAL_MOVE_CACHE_SIZE];
+            legalMoveCacheValues = new boolean[LEGAL_MOVE_CACHE_SIZE];
+        } else if (legalMoveCacheKeys[index] == zobristKey) {
+            return legalMoveCacheValues[index];
+        }
+
+        boolean hasLegalMove;
+        int generalSlot = generalSlots[currTurn.isRed() ? 0 : 1];
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        if (isInCheck(currTurn)) {
+            // 应将：大多数情况下将/帅自己可以躲开
+            hasLegalMove = hasLegalMove(generalSlot, true);
+            for (int slot = firstSlot; !hasLegalMove && slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+                hasLegalMove = slot != generalSlot && hasLegalMove(slot, true);
+            }
+        } else {
+            int markedCount = markPins(slotSquares[generalSlot]);
+            hasLegalMove = false;
+            for (int slot = firstSlot; !hasLegalMove && slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+                hasLegalMove = hasLegalMove(slot, slot == generalSlot);
+            }
+            for (int i = 0; i < markedCount; i++) {
+                pinMarks[markedSquares[i]] = 0;
             }
-            // 撤销棋盘上的给定走法
-            unmakeMove(move);
-            // 如果已经设置为非“将死”状态，跳出
-            if (!isCheckmated) break;
         }
 
-        return isCheckmated;
+        legalMoveCacheKeys[index] = zobristKey;
+        legalMoveCacheValues[index] = hasLegalMove;
+        return hasLegalMove;
     }
 
     /**
-     * 检查棋盘上的游戏是不是和棋.
+     * 检查给定槽位上的棋子是否有不送将的走法。不需要探测时，根据{@link #markPins(int)}的标记判断
      *
-     * @return 如果是平局则为true，否则为false.
+     * @param probe 是否在棋盘数组上探测每个走法
      */
-    public boolean isGameDraw() {
+    private boolean hasLegalMove(int slot, boolean probe) {
+        int srcSquare = slotSquares[slot];
+        if (srcSquare == 0) {
+            return false;
+        }
 
-        for (Piece piece : getPlayer(Alliance.RED).getActivePieces()) {
-            // 如果有攻击性，说明不是和棋
-            if (piece.getPieceType().isAttacking()) {
-                return false;
+        int code = squares[srcSquare];
+        probe |= (pinMarks[srcSquare] & PINNED) != 0;
+        for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+            int destSquare = attackMap.getReachableSquare(slot, i);
+            int destCode = squares[destSquare];
+            if ((destCode == EMPTY || ((destCode ^ code) & BLACK_FLAG) != 0)
+                    && (probe ? isLegal(srcSquare, destSquare) : (pinMarks[destSquare] & CANNON_LINE) == 0)) {
+                return true;
             }
         }
-        for (Piece piece : getPlayer(Alliance.BLACK).getActivePieces()) {
+        return false;
+    }
+
+    /**
+     * 检查当前玩家从源格子走到目标格子后自己的将/帅是否安全。只在棋盘数组上临时走子，检查后复原
+     */
+    private boolean isLegal(int srcSquare, int destSquare) {
+        int movedCode = squares[srcSquare];
+        int capturedCode = squares[destSquare];
+        squares[destSquare] = movedCode;
+        squares[srcSquare] = EMPTY;
+
+        int generalSquare = isPieceType(movedCode, PieceType.GENERAL)
+                ? destSquare : slotSquares[generalSlots[currTurn.isRed() ? 0 : 1]];
+        boolean isLegal = !isAttacked(generalSquare, currTurn.opposite());
+
+        squares[srcSquare] = movedCode;
+        squares[destSquare] = capturedCode;
+        return isLegal;
+    }
+
+    /**
+     * 检查棋盘上的游戏是不是和棋.
+     *
+     * @return 如果是平局则为true，否则为false.
+     */
+    public boolean isGameDraw() {
+        for (int slot = 0; slot < NUM_SLOTS_PER_SIDE * 2; slot++) {
             // 如果有攻击性，说明不是和棋
-            if (piece.getPieceType().isAttacking()) {
+            if (slotSquares[slot] != 0 && codeToPieceType(squares[slotSquares[slot]]).isAttacking()) {
                 return false;
             }
         }
@@ -365,69 +1210,199 @@ public class Board {
      * @return true if the current player has no capture moves, false otherwise.
      */
     public boolean isQuiet() {
-        for (Move move : getCurrPlayer().getLegalMoves()) {
-            if (move.isCapture()) {
-                return false;
+        int firstSlot = currTurn.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            for (int i = 0; i < attackMap.getReachableCount(slot); i++) {
+                int destCode = squares[attackMap.getReachableSquare(slot, i)];
+                if (destCode != EMPTY && ((destCode ^ squares[srcSquare]) & BLACK_FLAG) != 0) {
+                    return false;
+                }
             }
         }
         return true;
     }
 
     /**
-     * Returns a copy of this board.
+     * 从FEN串创建棋盘，例如初始局面为{@code rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1}。
+     * 大写为红方，小写为黑方：K将/帅、A士/仕、B象/相、N马、R车、C炮、P卒/兵（也接受G、E、H）；第一行是黑方底线。
+     * 当前回合为w（或r）表示红方，b表示黑方，之后的两个字段忽略，最后是距上次吃子的半回合数和回合数，可以省略。
+     * 棋子必须在可能到达的格子上（见{@link MoveTables#isReachable(int, int)}），不轮到走棋的一方不能被将军。
+     * <p>
+     * 直接解析字符，不经过{@link Builder}和走法重放，用于批量加载局面。
      *
-     * @return A copy of this board.
+     * @param fen FEN串
+     * @return 对应的棋盘
+     * @throws IllegalArgumentException FEN串无效
      */
-    public Board getCopy() {
-        Builder builder = new Builder();
+    public static Board fromFen(String fen) {
+        Piece[] boardPieces = new Piece[BoardUtil.NUM_POSITIONS];
+        int row = 0;
+        int col = 0;
+        int redGenerals = 0;
+        int blackGenerals = 0;
+        int index = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            char c = fen.charAt(index);
+            if (c == '/') {
+                if (col != NUM_COLS || ++row == NUM_ROWS) {
+                    throw new IllegalArgumentException("Invalid FEN row: " + fen);
+                }
+                col = 0;
+            } else if (c >= '1' && c <= '9') {
+                col += c - '0';
+            } else {
+                int code = c < FEN_CODES.length ? FEN_CODES[c] : EMPTY;
+                if (code == EMPTY || col >= NUM_COLS || !MoveTables.isReachable(code, BoardUtil.toSquare(row, col))) {
+                    throw new IllegalArgumentException("Invalid FEN piece: " + fen);
+                }
+                if (isPieceType(code, PieceType.GENERAL)) {
+                    if ((code & BLACK_FLAG) == 0) redGenerals++;
+                    else blackGenerals++;
+                }
+                boardPieces[BoardUtil.positionToIndex(row, col)] = Piece.of(code, BoardUtil.toSquare(row, col++));
+            }
+            if (col > NUM_COLS) {
+                throw new IllegalArgumentException("Invalid FEN row: " + fen);
+            }
+        }
+        if (row != NUM_ROWS - 1 || col != NUM_COLS || redGenerals != 1 || blackGenerals != 1) {
+            throw new IllegalArgumentException("Invalid FEN board: " + fen);
+        }
 
-        for (Point point : points) {
-            Optional<Piece> piece = point.getPiece();
-            piece.ifPresent(builder::putPiece);
+        // 当前回合
+        Alliance currTurn = Alliance.RED;
+        index = skipSpaces(fen, index);
+        if (index < fen.length()) {
+            char c = fen.charAt(index++);
+            if (c == 'b') {
+                currTurn = Alliance.BLACK;
+            } else if (c != 'w' && c != 'r') {
+                throw new IllegalArgumentException("Invalid FEN side to move: " + fen);
+            }
         }
-        builder.setCurrTurn(currTurn);
 
-        return builder.build();
+        // 忽略的两个字段，半回合数和回合数
+        int[] fields = {0, 0, 0, 1};
+        for (int i = 0; i < fields.length; i++) {
+            index = skipSpaces(fen, index);
+            if (index == fen.length()) break;
+            if (i < 2) {
+                while (index < fen.length() && fen.charAt(index) != ' ') index++;
+                continue;
+            }
+            int value = 0;
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                char c = fen.charAt(index);
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Invalid FEN move counter: " + fen);
+                }
+                value = value * 10 + c - '0';
+            }
+            fields[i] = value;
+        }
+        int startPly = Math.max(fields[3] - 1, 0) * 2 + (currTurn.isRed() ? 0 : 1);
+
+        Board board = new Board(boardPieces, currTurn, startPly, fields[2]);
+        // 不轮到走棋的一方不能被将军（包括将帅对面）
+        if (!board.isStateAllowed()) {
+            throw new IllegalArgumentException("Invalid FEN, side not to move is in check: " + fen);
+        }
+        return board;
     }
 
     /**
-     * Returns a mirrored copy (about the middle column) of this board.
+     * 返回从给定索引开始跳过空格后的索引
+     */
+    private static int skipSpaces(String str, int index) {
+        while (index < str.length() && str.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 返回当前局面的FEN串（见{@link #fromFen(String)}），回合数和距上次吃子的半回合数包括已走的步数
      *
-     * @return A mirrored copy of this board.
+     * @return FEN串
      */
-    public Board getMirrorBoard() {
-        Builder builder = new Builder();
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(96);
+        for (int row = 0; row < NUM_ROWS; row++) {
+            if (row > 0) {
+                sb.append('/');
+            }
+            int emptyCount = 0;
+            for (int col = 0; col < NUM_COLS; col++) {
+                int code = squares[BoardUtil.toSquare(row, col)];
+                if (code == EMPTY) {
+                    emptyCount++;
+                    continue;
+                }
+                if (emptyCount > 0) {
+                    sb.append(emptyCount);
+                    emptyCount = 0;
+                }
+                char c = FEN_PIECES.charAt(codeToPieceType(code).ordinal());
+                sb.append((code & BLACK_FLAG) == 0 ? c : Character.toLowerCase(c));
+            }
+            if (emptyCount > 0) {
+                sb.append(emptyCount);
+            }
+        }
 
-        for (Point point : points) {
-            Optional<Piece> piece = point.getPiece();
-            piece.ifPresent(p -> builder.putPiece(p.getMirrorPiece()));
+        int ply = startPly + getHistorySize();
+        sb.append(currTurn.isRed() ? " w - - " : " b - - ").append(getHalfmoveClock()).append(' ').append(ply / 2 + 1);
+        return sb.toString();
+    }
+
+    /**
+     * 返回距上次吃子的半回合数
+     */
+    private int getHalfmoveClock() {
+        int plies = 0;
+        for (int i = undoCount - 1; i >= 0; i--, plies++) {
+            if (Move.isCapture(undoEntries[i] & UNDO_MOVE_MASK)) {
+                return plies;
+            }
         }
-        builder.setCurrTurn(currTurn);
+        for (History entry = history; entry != null; entry = entry.previous, plies++) {
+            if (Move.isCapture(entry.undoEntry & UNDO_MOVE_MASK)) {
+                return plies;
+            }
+        }
+        return startHalfmoveClock + plies;
+    }
 
-        return builder.build();
+    /**
+     * Returns a copy of this board that keeps the slots, attack map and full move history, so moves made before the
+     * copy can still be unmade on it. Only the primitive arrays are copied; the history is shared immutably.
+     * Must be called by the thread that owns this board.
+     *
+     * @return A copy of this board.
+     */
+    public Board getCopy() {
+        return new Board(this);
     }
 
     /**
-     * Checks if the current player has given a check for three consecutive times.
+     * Returns a mirrored copy (about the middle column) of this board.
      *
-     * @return true if the current player has given a check for three consecutive times, false otherwise.
+     * @return A mirrored copy of this board.
      */
-    public boolean lastThreeChecks() {
-        if (playerInfoHistory.size() < 5) {
-            return false;
-        }
-        for (int i = 0; i < 3; i++) {
-            if (currTurn.isRed()) {
-                if (!playerInfoHistory.get(playerInfoHistory.size() - 1 - i * 2).blackPlayer.isInCheck()) {
-                    return false;
-                }
-            } else {
-                if (!playerInfoHistory.get(playerInfoHistory.size() - 1 - i * 2).redPlayer.isInCheck()) {
-                    return false;
-                }
+    public Board getMirrorBoard() {
+        Builder builder = new Builder();
+
+        for (int slot = 0; slot < NUM_SLOTS_PER_SIDE * 2; slot++) {
+            if (slotSquares[slot] != 0) {
+                builder.putPiece(pieces[slotSquares[slot]].getMirrorPiece());
             }
         }
-        return true;
+        builder.setCurrTurn(currTurn);
+
+        return builder.build();
     }
 
     /**
@@ -442,12 +1417,9 @@ public class Board {
         int leftCol = BoardUtil.fileToCol(6, alliance);
         int rightCol = BoardUtil.fileToCol(4, alliance);
 
-        Optional<Piece> left = getPoint(new Coordinate(lowRow, leftCol)).getPiece();
-        Optional<Piece> right = getPoint(new Coordinate(lowRow, rightCol)).getPiece();
-        Optional<Piece> mid = getPoint(new Coordinate(midRow, 4)).getPiece();
-        boolean hasLeft = left.map(p -> p.getPieceType().equals(PieceType.ADVISOR)).orElse(false);
-        boolean hasRight = right.map(p -> p.getPieceType().equals(PieceType.ADVISOR)).orElse(false);
-        boolean hasMid = mid.map(p -> p.getPieceType().equals(PieceType.ADVISOR)).orElse(false);
+        boolean hasLeft = isPieceType(squares[BoardUtil.toSquare(lowRow, leftCol)], PieceType.ADVISOR);
+        boolean hasRight = isPieceType(squares[BoardUtil.toSquare(lowRow, rightCol)], PieceType.ADVISOR);
+        boolean hasMid = isPieceType(squares[BoardUtil.toSquare(midRow, 4)], PieceType.ADVISOR);
 
         if (hasLeft && hasRight) {
             return AdvisorStructure.START;
@@ -467,15 +1439,213 @@ public class Board {
      * @return 指定位置对应的点位
      */
     public Point getPoint(Coordinate position) {
-        return points.get(BoardUtil.positionToIndex(position));
+        int index = BoardUtil.positionToIndex(position);
+        if (points[index] == null) {
+            points[index] = new Point(this, position);
+        }
+        return points[index];
+    }
+
+    /**
+     * 获取给定格子上的棋子编码
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子上的棋子编码，空格子为{@link Piece#EMPTY}，棋盘外为{@link Piece#OFFBOARD}
+     */
+    public int getPieceCode(int square) {
+        return squares[square];
+    }
+
+    /**
+     * 获取给定格子上的棋子
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子上的棋子，没有棋子时为null
+     */
+    public Piece getPiece(int square) {
+        return pieces[square];
+    }
+
+    /**
+     * 获取给定格子上棋子的槽位
+     */
+    int getSlot(int square) {
+        return squareSlots[square];
+    }
+
+    /**
+     * 获取给定槽位上的棋子
+     *
+     * @param slot 槽位（红方0-15，黑方16-31）
+     * @return 给定槽位上的棋子，已被吃时为null
+     */
+    public Piece getSlotPiece(int slot) {
+        return slotSquares[slot] == 0 ? null : pieces[slotSquares[slot]];
+    }
+
+    /**
+     * 检查给定阵营的将/帅是否被对方攻击（被将军）
+     *
+     * @param alliance 所属阵营（红方或黑方）
+     * @return true, 被将军，否则，false
+     */
+    public boolean isInCheck(Alliance alliance) {
+        int generalSlot = generalSlots[alliance.isRed() ? 0 : 1];
+        if (generalSlot < 0 || slotSquares[generalSlot] == 0) {
+            throw new RuntimeException(alliance.toString() + " GENERAL missing");
+        }
+        int generalSquare = slotSquares[generalSlot];
+        boolean isInCheck = isAttacked(generalSquare, alliance.opposite());
+        assert isInCheck == ((attackMap.getAttackers(generalSquare) & getSlotMask(alliance.opposite())) != 0);
+        return isInCheck;
+    }
+
+    /**
+     * 检查给定阵营的棋子能否吃掉给定格子上的对方将/帅（给定格子为空时，假设对方将/帅走到该格子上）。
+     * 不生成走法，而是从给定格子向外探测：车和将/帅的直线、炮的炮架、马的反向马腿以及相邻的卒/兵等
+     *
+     * @param square     棋盘数组中的格子
+     * @param byAlliance 进攻方所属阵营（红方或黑方）
+     * @return true, 给定格子被攻击，否则，false
+     */
+    public boolean isAttacked(int square, Alliance byAlliance) {
+        // 卒/兵
+        int soldierCode = getCode(PieceType.SOLDIER, byAlliance);
+        int backward = -BoardUtil.SQUARE_ROW_WIDTH * byAlliance.getDirection();
+        if (squares[square + backward] == soldierCode || isLeaperAttack(soldierCode, square - 1, square)
+                || isLeaperAttack(soldierCode, square + 1, square)) {
+            return true;
+        }
+
+        // 马：马腿是给定格子与马之间的斜向相邻格子
+        int horseCode = getCode(PieceType.HORSE, byAlliance);
+        for (int i = 0; i < HORSE_ATTACK_DIRECTIONS.length; i++) {
+            if (squares[square + HORSE_ATTACK_DIRECTIONS[i]] == horseCode && squares[square + HORSE_ATTACK_LEGS[i]] == EMPTY) {
+                return true;
+            }
+        }
+
+        // 士/仕、象/相和九宫内的将/帅
+        int advisorCode = getCode(PieceType.ADVISOR, byAlliance);
+        int elephantCode = getCode(PieceType.ELEPHANT, byAlliance);
+        int generalCode = getCode(PieceType.GENERAL, byAlliance);
+        for (int direction : DIAGONAL_DIRECTIONS) {
+            if (isLeaperAttack(advisorCode, square + direction, square)
+                    || (squares[square + direction] == EMPTY && isLeaperAttack(elephantCode, square + direction * 2, square))) {
+                return true;
+            }
+        }
+
+        // 车、炮、将/帅
+        int chariotCode = getCode(PieceType.CHARIOT, byAlliance);
+        int cannonCode = getCode(PieceType.CANNON, byAlliance);
+        for (int direction : LINE_DIRECTIONS) {
+            int currSquare = square + direction;
+            int code;
+            while ((code = squares[currSquare]) == EMPTY) {
+                currSquare += direction;
+            }
+            if (code == chariotCode) {
+                return true;
+            }
+            // 将/帅对脸，或者九宫内相邻
+            if (code == generalCode && (direction == backward || currSquare == square + direction && isLeaperAttack(code, currSquare, square))) {
+                return true;
+            }
+            if (code == OFFBOARD) continue;
+
+            // 越过炮架
+            currSquare += direction;
+            while ((code = squares[currSquare]) == EMPTY) {
+                currSquare += direction;
+            }
+            if (code == cannonCode) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 检查给定格子上是否有给定编码的马以外的短程棋子，并且可以走到目标格子
+     */
+    private boolean isLeaperAttack(int code, int srcSquare, int destSquare) {
+        if (squares[srcSquare] != code) {
+            return false;
+        }
+        for (int targetSquare : MoveTables.getTargets(code, srcSquare)) {
+            if (targetSquare == destSquare) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取给定阵营中可以到达给定格子的棋子，即攻击（对方棋子所在格子）或保护（己方棋子所在格子）该格子的棋子
+     *
+     * @param square   棋盘数组中的格子
+     * @param alliance 所属阵营（红方或黑方）
+     * @return 可以到达给定格子的棋子的槽位掩码，用{@link #getSlotPiece(int)}获取对应的棋子
+     */
+    public int getAttackers(int square, Alliance alliance) {
+        return attackMap.getAttackers(square) & getSlotMask(alliance);
+    }
+
+    /**
+     * 获取给定阵营全部棋子的机动性总值，即每个棋子的走法数量乘以其机动性价值之和
+     *
+     * @param alliance 所属阵营（红方或黑方）
+     * @return 机动性总值
+     */
+    public int getMobilityValue(Alliance alliance) {
+        int mobilityValue = 0;
+        int firstSlot = alliance.isRed() ? 0 : NUM_SLOTS_PER_SIDE;
+        for (int slot = firstSlot; slot < firstSlot + NUM_SLOTS_PER_SIDE; slot++) {
+            int srcSquare = slotSquares[slot];
+            if (srcSquare == 0) continue;
+
+            int blackFlag = squares[srcSquare] & BLACK_FLAG;
+            int moveCount = 0;
+            for (int i = attackMap.getReachableCount(slot) - 1; i >= 0; i--) {
+                int code = squares[attackMap.getReachableSquare(slot, i)];
+                // 己方棋子所在的格子不能走
+                if (code == EMPTY || (code & BLACK_FLAG) != blackFlag) {
+                    moveCount++;
+                }
+            }
+            mobilityValue += codeToPieceType(squares[srcSquare]).getMobilityValue() * moveCount;
+        }
+        return mobilityValue;
+    }
+
+    /**
+     * 返回给定阵营全部槽位的掩码
+     */
+    private static int getSlotMask(Alliance alliance) {
+        return alliance.isRed() ? 0x0000ffff : 0xffff0000;
     }
 
     public long getZobristKey() {
         return zobristKey;
     }
 
+    AttackMap getAttackMap() {
+        return attackMap;
+    }
+
     public Player getPlayer(Alliance alliance) {
-        return alliance.isRed() ? playerInfo.redPlayer : playerInfo.blackPlayer;
+        if (alliance.isRed()) {
+            if (redPlayer == null) {
+                redPlayer = new Player(this, Alliance.RED);
+            }
+            return redPlayer;
+        }
+        if (blackPlayer == null) {
+            blackPlayer = new Player(this, Alliance.BLACK);
+        }
+        return blackPlayer;
     }
 
     public Player getCurrPlayer() {
@@ -492,7 +1662,7 @@ public class Board {
 
         for (int row = 0; row < NUM_ROWS; row++) {
             for (int col = 0; col < NUM_COLS; col++) {
-                String pointText = points.get(BoardUtil.positionToIndex(row, col)).toString();
+                String pointText = getPoint(Coordinate.of(row, col)).toString();
                 sb.append(String.format("%3s", pointText));
             }
             sb.append("\n");
@@ -501,6 +1671,16 @@ public class Board {
         return sb.toString();
     }
 
+    /**
+     * 局面重复的结果，从当前玩家的角度
+     */
+    public enum Repetition {
+        NONE, // 没有重复
+        DRAW, // 和棋
+        WIN, // 对手长将或长捉，判对手负
+        LOSS // 当前玩家长将或长捉，判当前玩家负
+    }
+
     /**
      * Represents the structure of a player's advisors.
      */
@@ -512,16 +1692,20 @@ public class Board {
     }
 
     /**
-     * Represents both players on this board.
+     * 不可变的历史：撤销栈的一项及其之前的历史，组成单向链表，可以在多个棋盘之间共享
      */
-    private static class PlayerInfo {
-
-        private Player redPlayer;
-        private Player blackPlayer;
-
-        private PlayerInfo(Player redPlayer, Player blackPlayer) {
-            this.redPlayer = redPlayer;
-            this.blackPlayer = blackPlayer;
+    private static class History {
+
+        private final int undoEntry;
+        private final long key;
+        private final History previous;
+        private final int size;
+
+        private History(int undoEntry, long key, History previous) {
+            this.undoEntry = undoEntry;
+            this.key = key;
+            this.previous = previous;
+            this.size = previous == null ? 1 : previous.size + 1;
         }
     }
 
@@ -530,16 +1714,24 @@ public class Board {
      */
     private static class Zobrist {
 
-        private final long[][][] pieces;
+        /**
+         * 固定的随机数种子，使每次运行的键值相同，搜索结果（包括置换表中的冲突）可以重现
+         */
+        private static final long SEED = 0x5A0B1E57C4E55L;
+
+        private final long[][] pieces;
         private final long side;
 
         private Zobrist() {
-            Random rand = new Random();
-            pieces = new long[7][2][90];
-            for (int i = 0; i < 7; i++) {
-                for (int j = 0; j < 2; j++) {
-                    for (int k = 0; k < 90; k++) {
-                        pieces[i][j][k] = rand.nextLong();
+            Random rand = new Random(SEED);
+            pieces = new long[OFFBOARD][BoardUtil.NUM_SQUARES];
+            for (PieceType pieceType : PieceType.values()) {
+                for (Alliance alliance : Alliance.values()) {
+                    int code = getCode(pieceType, alliance);
+                    for (int square = 0; square < BoardUtil.NUM_SQUARES; square++) {
+                        if (BoardUtil.isOnBoard(square)) {
+                            pieces[code][square] = rand.nextLong();
+                        }
                     }
                 }
             }
@@ -547,25 +1739,14 @@ public class Board {
         }
 
         /**
-         * Returns the Zobrist hash of the given piece.
-         */
-        private long getPieceHash(Piece piece) {
-            int pieceIndex = piece.getPieceType().ordinal();
-            int sideIndex = piece.getAlliance().isRed() ? 0 : 1;
-            int posIndex = BoardUtil.positionToIndex(piece.getPosition());
-
-            return pieces[pieceIndex][sideIndex][posIndex];
-        }
-
-        /**
-         * Returns the Zobrist key given a list of points and current turn.
+         * Returns the Zobrist key given the board squares and current turn.
          */
-        private long getKey(List<Point> points, Alliance currTurn) {
+        private long getKey(int[] squares, Alliance currTurn) {
             long key = 0;
 
-            for (Point point : points) {
-                if (!point.isEmpty()) {
-                    key ^= getPieceHash(point.getPiece().get());
+            for (int square = 0; square < BoardUtil.NUM_SQUARES; square++) {
+                if (squares[square] != EMPTY && squares[square] != OFFBOARD) {
+                    key ^= pieces[squares[square]][square];
                 }
             }
             if (!currTurn.isRed()) {
@@ -576,18 +1757,15 @@ public class Board {
         }
 
         /**
-         * Returns the new Zobrist key given the old key and the move made.
+         * Returns the new Zobrist key given the old key and the encoded move made.
          */
-        private long updateKey(long key, Move move) {
-            Piece movedPiece = move.getMovedPiece();
-            Piece destPiece = movedPiece.movePiece(move);
-            Optional<Piece> capturedPiece = move.getCapturedPiece();
+        private long updateKey(long key, int move) {
+            int code = Move.getMovedCode(move);
+            int destSquare = Move.getDestSquare(move);
 
-            long movedPieceHash = getPieceHash(movedPiece);
-            long destPieceHash = getPieceHash(destPiece);
-            key ^= movedPieceHash ^ destPieceHash;
-            if (capturedPiece.isPresent()) {
-                key ^= getPieceHash(capturedPiece.get());
+            key ^= pieces[code][Move.getSrcSquare(move)] ^ pieces[code][destSquare];
+            if (Move.isCapture(move)) {
+                key ^= pieces[Move.getCapturedCode(move)][destSquare];
             }
 
             return key;
@@ -642,5 +1820,16 @@ public class Board {
         Board build() {
             return new Board(this);
         }
+
+        /**
+         * 返回按位置索引的棋子
+         */
+        private Piece[] getBoardPieces() {
+            Piece[] boardPieces = new Piece[BoardUtil.NUM_POSITIONS];
+            for (Piece piece : boardConfig.values()) {
+                boardPieces[BoardUtil.positionToIndex(piece.getPosition())] = piece;
+            }
+            return boardPieces;
+        }
     }
 }
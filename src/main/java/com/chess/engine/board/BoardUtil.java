@@ -7,6 +7,41 @@ import com.chess.engine.Alliance;
  */
 public class BoardUtil {
 
+    /**
+     * 棋盘上位置的数量
+     */
+    public static final int NUM_POSITIONS = Board.NUM_ROWS * Board.NUM_COLS;
+    /**
+     * 带哨兵边界的棋盘数组大小（16 x 16，棋盘位于第3行至第12行、第3列至第11列）
+     */
+    public static final int NUM_SQUARES = 256;
+    /**
+     * 棋盘数组中一行的宽度
+     */
+    public static final int SQUARE_ROW_WIDTH = 16;
+    /**
+     * 棋盘四周哨兵边界的宽度
+     */
+    private static final int PADDING = 3;
+    /**
+     * 格子是否在棋盘范围内
+     */
+    private static final boolean[] ON_BOARD = new boolean[NUM_SQUARES];
+    /**
+     * 格子对应的位置
+     */
+    private static final Coordinate[] SQUARE_POSITIONS = new Coordinate[NUM_SQUARES];
+
+    static {
+        for (int row = 0; row < Board.NUM_ROWS; row++) {
+            for (int col = 0; col < Board.NUM_COLS; col++) {
+                int square = toSquare(row, col);
+                ON_BOARD[square] = true;
+                SQUARE_POSITIONS[square] = Coordinate.of(row, col);
+            }
+        }
+    }
+
     /**
      * 检查给定位置是否在棋盘边界内
      *
@@ -20,6 +55,77 @@ public class BoardUtil {
         return (row >= 0 && row < Board.NUM_ROWS) && (col >= 0 && col < Board.NUM_COLS);
     }
 
+    /**
+     * 根据行和列返回棋盘数组中对应的格子
+     *
+     * @param row 行
+     * @param col 列
+     * @return 棋盘数组中对应的格子
+     */
+    public static int toSquare(int row, int col) {
+        return ((row + PADDING) << 4) | (col + PADDING);
+    }
+
+    /**
+     * 返回给定位置在棋盘数组中对应的格子
+     *
+     * @param position 给定位置
+     * @return 棋盘数组中对应的格子
+     */
+    public static int positionToSquare(Coordinate position) {
+        return toSquare(position.getRow(), position.getCol());
+    }
+
+    /**
+     * 返回给定格子对应的位置
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子对应的位置，不在棋盘范围内时为null
+     */
+    public static Coordinate squareToPosition(int square) {
+        return SQUARE_POSITIONS[square];
+    }
+
+    /**
+     * 返回给定格子所在的行
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子所在的行
+     */
+    public static int squareToRow(int square) {
+        return (square >> 4) - PADDING;
+    }
+
+    /**
+     * 返回给定格子所在的列
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子所在的列
+     */
+    public static int squareToCol(int square) {
+        return (square & 15) - PADDING;
+    }
+
+    /**
+     * 返回给定格子对应的位置索引(0-89)
+     *
+     * @param square 棋盘数组中的格子
+     * @return 格子对应的位置索引
+     */
+    public static int squareToIndex(int square) {
+        return positionToIndex(squareToRow(square), squareToCol(square));
+    }
+
+    /**
+     * 检查给定格子是否在棋盘范围内
+     *
+     * @param square 棋盘数组中的格子
+     * @return true，在棋盘范围内，否则，false
+     */
+    public static boolean isOnBoard(int square) {
+        return ON_BOARD[square];
+    }
+
     /**
      * 给定位置的镜像版本
      *
@@ -27,7 +133,7 @@ public class BoardUtil {
      * @return 给定位置的镜像版本
      */
     public static Coordinate getMirrorPosition(Coordinate position) {
-        return new Coordinate(position.getRow(), Board.NUM_COLS - 1 - position.getCol());
+        return Coordinate.of(position.getRow(), Board.NUM_COLS - 1 - position.getCol());
     }
 
     /**
@@ -1,9 +1,7 @@
 package com.chess.engine.board;
 
-import java.util.Objects;
-
 /**
- * 表示棋盘上的位置或移动向量
+ * 表示棋盘上的位置
  */
 public class Coordinate {
     /**
@@ -15,35 +13,42 @@ public class Coordinate {
      */
     private final int col;
 
+    /**
+     * 棋盘上90个位置的规范实例，按位置索引
+     */
+    private static final Coordinate[] POSITIONS = new Coordinate[BoardUtil.NUM_POSITIONS];
+
+    static {
+        for (int row = 0; row < Board.NUM_ROWS; row++) {
+            for (int col = 0; col < Board.NUM_COLS; col++) {
+                POSITIONS[row * Board.NUM_COLS + col] = new Coordinate(row, col);
+            }
+        }
+    }
+
     /**
      * 构造
      *
      * @param row 行
      * @param col 列
      */
-    public Coordinate(int row, int col) {
+    private Coordinate(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
     /**
-     * 将给定的移动向量添加到此位置并返回新位置
+     * 返回给定行和列对应的坐标。棋盘范围内的位置总是返回同一个实例
      *
-     * @param vector 要相加的向量.
-     * @return 新位置(不保证在棋盘范围内).
-     */
-    public Coordinate add(Coordinate vector) {
-        return new Coordinate(this.row + vector.row, this.col + vector.col);
-    }
-
-    /**
-     * 用给定的缩放倍数缩放这个移动向量，并返回缩放后的向量
-     *
-     * @param factor 缩放倍数.
-     * @return 按比例缩小的向量.
+     * @param row 行
+     * @param col 列
+     * @return 对应的坐标
      */
-    public Coordinate scale(int factor) {
-        return new Coordinate(this.row * factor, this.col * factor);
+    public static Coordinate of(int row, int col) {
+        if (row >= 0 && row < Board.NUM_ROWS && col >= 0 && col < Board.NUM_COLS) {
+            return POSITIONS[row * Board.NUM_COLS + col];
+        }
+        return new Coordinate(row, col);
     }
 
     /**
@@ -75,6 +80,6 @@ public class Coordinate {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return row * Board.NUM_COLS + col;
     }
 }
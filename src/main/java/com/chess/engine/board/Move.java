@@ -3,7 +3,6 @@ package com.chess.engine.board;
 import com.chess.engine.Alliance;
 import com.chess.engine.pieces.Piece;
 
-import java.util.Objects;
 import java.util.Optional;
 
 import static com.chess.engine.pieces.Piece.PieceType;
@@ -12,6 +11,11 @@ import static com.chess.engine.pieces.Piece.PieceType;
  * 棋手在棋盘上的移动
  */
 public class Move {
+    /**
+     * 表示“没有走法”的走法编码
+     */
+    public static final int NULL_MOVE = 0;
+
     /**
      * Zobrist哈希的键值
      */
@@ -55,6 +59,81 @@ public class Move {
         this(zobristKey, movedPiece, destPosition, null);
     }
 
+    /**
+     * 将走法编码为int：第0-7位为源格子，第8-15位为目标格子，第16-19位为移动的棋子编码，第20-23位为被吃的棋子编码（没有吃子时为0）。
+     * 格子为棋盘数组中的格子（见{@link BoardUtil#toSquare(int, int)}），源格子总是非0，所以合法的编码不会等于{@link #NULL_MOVE}
+     *
+     * @param srcSquare    源格子
+     * @param destSquare   目标格子
+     * @param movedCode    移动的棋子编码
+     * @param capturedCode 被吃的棋子编码
+     * @return 走法编码
+     */
+    public static int encode(int srcSquare, int destSquare, int movedCode, int capturedCode) {
+        return srcSquare | (destSquare << 8) | (movedCode << 16) | (capturedCode << 20);
+    }
+
+    /**
+     * 获取走法编码的源格子
+     *
+     * @param move 走法编码
+     * @return 源格子
+     */
+    public static int getSrcSquare(int move) {
+        return move & 0xff;
+    }
+
+    /**
+     * 获取走法编码的目标格子
+     *
+     * @param move 走法编码
+     * @return 目标格子
+     */
+    public static int getDestSquare(int move) {
+        return (move >>> 8) & 0xff;
+    }
+
+    /**
+     * 获取走法编码中移动的棋子编码
+     *
+     * @param move 走法编码
+     * @return 移动的棋子编码
+     */
+    public static int getMovedCode(int move) {
+        return (move >>> 16) & 0xf;
+    }
+
+    /**
+     * 获取走法编码中被吃的棋子编码
+     *
+     * @param move 走法编码
+     * @return 被吃的棋子编码，没有吃子时为{@link Piece#EMPTY}
+     */
+    public static int getCapturedCode(int move) {
+        return (move >>> 20) & 0xf;
+    }
+
+    /**
+     * 走法编码是否吃子
+     *
+     * @param move 走法编码
+     * @return true, 有吃子，否则，false
+     */
+    public static boolean isCapture(int move) {
+        return getCapturedCode(move) != Piece.EMPTY;
+    }
+
+    /**
+     * 返回此移动的int编码
+     *
+     * @return 此移动的int编码
+     * @see #encode(int, int, int, int)
+     */
+    public int toInt() {
+        return encode(BoardUtil.positionToSquare(movedPiece.getPosition()), BoardUtil.positionToSquare(destPosition),
+                movedPiece.getCode(), capturedPiece == null ? Piece.EMPTY : capturedPiece.getCode());
+    }
+
     /**
      * 与给定字符串表示的相对应的移动(如果有的话)
      *
@@ -80,9 +159,9 @@ public class Move {
         int newCol = BoardUtil.fileToCol(Character.getNumericValue(str.charAt(5)), alliance);
 
         // 源位置
-        Coordinate srcPosition = new Coordinate(formerRow, formerCol);
+        Coordinate srcPosition = Coordinate.of(formerRow, formerCol);
         // 目标位置
-        Coordinate destPosition = new Coordinate(newRow, newCol);
+        Coordinate destPosition = Coordinate.of(newRow, newCol);
 
         // 生成对应于给定字符串表示的移动
         return board.getMove(srcPosition, destPosition);
@@ -179,11 +258,15 @@ public class Move {
             return false;
         }
         Move other = (Move) obj;
-        return this.zobristKey == other.zobristKey && this.movedPiece.equals(other.movedPiece) && this.destPosition.equals(other.destPosition) && this.getCapturedPiece().equals(other.getCapturedPiece());
+        return this.zobristKey == other.zobristKey && this.movedPiece.equals(other.movedPiece) && this.destPosition.equals(other.destPosition) && this.capturedPiece == other.capturedPiece;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(zobristKey, movedPiece, destPosition, getCapturedPiece());
+        int result = Long.hashCode(zobristKey);
+        result = 31 * result + movedPiece.hashCode();
+        result = 31 * result + destPosition.hashCode();
+        result = 31 * result + (capturedPiece == null ? 0 : capturedPiece.hashCode());
+        return result;
     }
 }
@@ -0,0 +1,116 @@
+package com.chess.engine.board;
+
+/**
+ * 可重复使用的走法列表，存放走法编码（见{@link Move#encode(int, int, int, int)}）
+ * <p>
+ * 搜索时每一层预先分配一个列表，走法生成直接填充到列表中，不为每个走法分配对象。
+ */
+public class MoveList {
+
+    /**
+     * 单个局面的最大走法数量
+     */
+    public static final int MAX_MOVES = 128;
+
+    /**
+     * 走法编码
+     */
+    private final int[] moves;
+    /**
+     * 与走法对应的排序分值，分值小的排在前面
+     */
+    private final int[] scores;
+    /**
+     * 走法的数量
+     */
+    private int size;
+
+    public MoveList() {
+        moves = new int[MAX_MOVES];
+        scores = new int[MAX_MOVES];
+    }
+
+    /**
+     * 添加走法
+     *
+     * @param move 走法编码
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * 添加走法及其排序分值
+     *
+     * @param move  走法编码
+     * @param score 排序分值
+     */
+    public void add(int move, int score) {
+        scores[size] = score;
+        moves[size++] = move;
+    }
+
+    /**
+     * 获取给定索引的走法
+     *
+     * @param index 索引
+     * @return 走法编码
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * 获取给定索引的走法的排序分值
+     *
+     * @param index 索引
+     * @return 排序分值
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * 设置给定索引的走法的排序分值
+     *
+     * @param index 索引
+     * @param score 排序分值
+     */
+    public void setScore(int index, int score) {
+        scores[index] = score;
+    }
+
+    /**
+     * 按排序分值从小到大稳定排序（插入排序，走法数量少时比通用排序快且不分配内存）
+     */
+    public void sort() {
+        for (int i = 1; i < size; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] > score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 走法的数量
+     *
+     * @return 走法的数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空列表
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.chess.engine.board;
+
+import com.chess.engine.pieces.Piece;
+
+/**
+ * 走法的接收者：棋子的走法生成（见{@link Piece#generate(Board, MoveSink)}）逐个报告可以到达的格子，
+ * 调用者只处理自己需要的信息，不建立中间集合，也不创建走法对象
+ */
+@FunctionalInterface
+public interface MoveSink {
+
+    /**
+     * 接收一个走法（走到空格子或者吃对方的棋子）
+     *
+     * @param srcSquare    起点在棋盘数组中的格子
+     * @param destSquare   终点在棋盘数组中的格子
+     * @param capturedCode 被吃的棋子的编码，不吃子时为{@link Piece#EMPTY}
+     */
+    void accept(int srcSquare, int destSquare, int capturedCode);
+
+    /**
+     * 接收一个保护（终点上是己方的棋子），默认忽略
+     *
+     * @param srcSquare    起点在棋盘数组中的格子
+     * @param destSquare   终点在棋盘数组中的格子
+     * @param defendedCode 被保护的棋子的编码
+     */
+    default void defend(int srcSquare, int destSquare, int defendedCode) {
+    }
+}
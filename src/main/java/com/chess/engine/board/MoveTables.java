@@ -0,0 +1,165 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Piece.PieceType;
+
+import java.util.Arrays;
+
+/**
+ * 预先计算的走法表
+ * <p>
+ * 对马、象/相、士/仕、将/帅和卒/兵，按棋子编码和棋盘数组中的格子列出可以到达的目标格子（已考虑棋盘范围、九宫和河界），
+ * 马和象/相还列出与目标格子对应的蹩腿格子（马腿、象眼）。走法生成时只需遍历表并检查目标格子和蹩腿格子的占用。
+ */
+public class MoveTables {
+
+    /**
+     * 按棋子编码和格子索引的目标格子
+     */
+    private static final int[][][] TARGETS = new int[Piece.OFFBOARD][][];
+    /**
+     * 按棋子编码和格子索引的蹩腿格子，与目标格子一一对应（只有马和象/相有）
+     */
+    private static final int[][][] BLOCKERS = new int[Piece.OFFBOARD][][];
+
+    private static final int[] EMPTY_TABLE = new int[0];
+
+    static {
+        int width = BoardUtil.SQUARE_ROW_WIDTH;
+        for (Alliance alliance : Alliance.values()) {
+            int forward = width * alliance.getDirection();
+            int sideways = alliance.getDirection();
+            initTable(PieceType.HORSE, alliance,
+                    new int[]{-2 * width - 1, -2 * width + 1, -width - 2, width - 2, 2 * width - 1, 2 * width + 1, -width + 2, width + 2},
+                    new int[]{-width, -width, -1, -1, width, width, 1, 1});
+            initTable(PieceType.ELEPHANT, alliance,
+                    new int[]{-2 * width - 2, 2 * width - 2, 2 * width + 2, -2 * width + 2},
+                    new int[]{-width - 1, width - 1, width + 1, -width + 1});
+            initTable(PieceType.ADVISOR, alliance, new int[]{-width - 1, width - 1, width + 1, -width + 1}, null);
+            initTable(PieceType.GENERAL, alliance, new int[]{-width, -1, width, 1}, null);
+            // 卒/兵过河前只能向前，过河后可以向前和左右
+            initTable(PieceType.SOLDIER, alliance, new int[]{forward, -sideways, sideways}, null);
+        }
+    }
+
+    private MoveTables() {
+    }
+
+    /**
+     * 返回给定棋子在给定格子上可以到达的目标格子
+     *
+     * @param code   棋子编码
+     * @param square 棋盘数组中的格子
+     * @return 目标格子，不可修改
+     */
+    public static int[] getTargets(int code, int square) {
+        return TARGETS[code][square];
+    }
+
+    /**
+     * 返回与{@link #getTargets(int, int)}一一对应的蹩腿格子（马腿、象眼）
+     *
+     * @param code   棋子编码（马或象/相）
+     * @param square 棋盘数组中的格子
+     * @return 蹩腿格子，不可修改
+     */
+    public static int[] getBlockers(int code, int square) {
+        return BLOCKERS[code][square];
+    }
+
+    /**
+     * 检查给定棋子是否可能出现在给定格子上：将/帅和士/仕在九宫内，象/相在己方的7个位置上，
+     * 卒/兵不在出发的横线之后，过河前只在出发时的5列上
+     *
+     * @param code   棋子编码
+     * @param square 棋盘数组中的格子
+     * @return true，可能出现，否则，false
+     */
+    public static boolean isReachable(int code, int square) {
+        if (!BoardUtil.isOnBoard(square)) {
+            return false;
+        }
+        PieceType pieceType = Piece.codeToPieceType(code);
+        Alliance alliance = Piece.codeToAlliance(code);
+        int row = BoardUtil.squareToRow(square);
+        int col = BoardUtil.squareToCol(square);
+        if (pieceType == PieceType.SOLDIER) {
+            // 距己方底线的行数，出发的横线为3，河界为4
+            int rank = alliance.isRed() ? Board.NUM_ROWS - 1 - row : row;
+            return rank > Board.RIVER_ROW_BLACK || (rank >= 3 && col % 2 == 0);
+        }
+        return isValidSquare(pieceType, alliance, row, col);
+    }
+
+    /**
+     * 初始化给定棋子的走法表
+     *
+     * @param pieceType  棋子类型
+     * @param alliance   所属阵营（红方或黑方）
+     * @param directions 移动的方向（棋盘数组中的偏移）
+     * @param blockers   与方向对应的蹩腿方向，没有时为null
+     */
+    private static void initTable(PieceType pieceType, Alliance alliance, int[] directions, int[] blockers) {
+        int code = Piece.getCode(pieceType, alliance);
+        TARGETS[code] = new int[BoardUtil.NUM_SQUARES][];
+        BLOCKERS[code] = blockers == null ? null : new int[BoardUtil.NUM_SQUARES][];
+
+        for (int square = 0; square < BoardUtil.NUM_SQUARES; square++) {
+            int[] targets = new int[directions.length];
+            int[] targetBlockers = new int[directions.length];
+            int count = 0;
+            if (BoardUtil.isOnBoard(square)) {
+                for (int i = 0; i < directions.length; i++) {
+                    int destSquare = square + directions[i];
+                    if (BoardUtil.isOnBoard(destSquare) && isValidMove(pieceType, alliance, square, destSquare)) {
+                        targets[count] = destSquare;
+                        targetBlockers[count] = blockers == null ? 0 : square + blockers[i];
+                        count++;
+                    }
+                }
+            }
+            TARGETS[code][square] = count == 0 ? EMPTY_TABLE : Arrays.copyOf(targets, count);
+            if (blockers != null) {
+                BLOCKERS[code][square] = count == 0 ? EMPTY_TABLE : Arrays.copyOf(targetBlockers, count);
+            }
+        }
+    }
+
+    /**
+     * 检查给定棋子从起点格子走到目标格子是否符合九宫和河界的限制
+     */
+    private static boolean isValidMove(PieceType pieceType, Alliance alliance, int srcSquare, int destSquare) {
+        int srcRow = BoardUtil.squareToRow(srcSquare);
+        int row = BoardUtil.squareToRow(destSquare);
+
+        if (pieceType == PieceType.SOLDIER) {
+            // 过河前只能向前
+            boolean crossedRiver = alliance.isRed() ? srcRow < Board.RIVER_ROW_RED : srcRow > Board.RIVER_ROW_BLACK;
+            return crossedRiver || row != srcRow;
+        }
+        return isValidSquare(pieceType, alliance, row, BoardUtil.squareToCol(destSquare));
+    }
+
+    /**
+     * 检查给定棋子的位置是否符合九宫和河界的限制（卒/兵除外）
+     */
+    private static boolean isValidSquare(PieceType pieceType, Alliance alliance, int row, int col) {
+        int palaceTop = alliance.isRed() ? 7 : 0;
+        boolean inPalace = (row >= palaceTop && row <= palaceTop + 2) && (col >= 3 && col <= 5);
+
+        switch (pieceType) {
+            case ELEPHANT:
+                // 象/相只能在己方的7个位置上
+                boolean ownSide = alliance.isRed() ? row >= Board.RIVER_ROW_RED : row <= Board.RIVER_ROW_BLACK;
+                return ownSide && col % 2 == 0 && row % 2 == (alliance.isRed() ? 1 : 0) && (row / 2 + col / 2) % 2 == 1;
+            case ADVISOR:
+                // 士/仕只能在九宫的5个位置上
+                return inPalace && (row - palaceTop + col - 3) % 2 == 0;
+            case GENERAL:
+                return inPalace;
+            default:
+                return true;
+        }
+    }
+}
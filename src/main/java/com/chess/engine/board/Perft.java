@@ -0,0 +1,375 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 走法生成的性能测试（perft）：统计给定深度的叶子节点数量，用于验证走法生成的正确性和测量速度
+ * <p>
+ * 使用{@link Board#generateLegalMoves(MoveList)}、{@link Board#makeMove(int)}和{@link Board#unmakeMove(int)}，
+ * 最后一层直接累加合法走法的数量（批量计数）。可以使用置换表跳过重复的局面，也可以把根节点的走法分配到
+ * {@link ForkJoinPool}的多个线程中，每个线程使用棋盘的副本（见{@link Board#getCopy()}）。
+ * <p>
+ * 也可以同时用位棋盘（{@link BitBoard}）计数，比较两者的节点数并分别输出速度（置换表只用于{@link Board}）。
+ * <p>
+ * 用法：{@code Perft [-check] [-divide] [-bitboard] [-threads n] [-hash MB] [depth] [FEN]}，
+ * {@code -check}用内置局面的参考值验证
+ */
+public class Perft {
+
+    /**
+     * 内置的局面（FEN）及其第1层开始的参考节点数：初始局面，以及炮架、将帅对脸和马腿牵制等容易出错的局面
+     */
+    static final String[] REFERENCE_FENS = {
+            "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1",
+            // 将与炮之间的仕和马都是炮架，都被牵制
+            "3k5/9/9/9/9/4c4/9/4N4/4A4/4K4 w - - 0 1",
+            // 车在将军的马的马腿上，只能吃马
+            "4k4/3r5/3N5/9/9/9/9/9/4A4/3K5 b - - 0 1",
+            // 将帅之间只有一个卒
+            "4k4/9/9/9/4p4/9/9/2C6/9/4K4 b - - 0 1",
+            "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w - - 0 1",
+            "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w - - 0 1",
+    };
+    private static final long[][] REFERENCE_COUNTS = {
+            {44, 1920, 79666, 3290240},
+            {1, 17, 181, 3005, 30880},
+            {4, 17, 178, 1172, 18117},
+            {4, 78, 289, 5321, 23196},
+            {38, 1128, 43929, 1339047},
+            {7, 281, 8620, 326201},
+    };
+    /**
+     * 置换表每一项占用的字节数（两个long）
+     */
+    private static final int HASH_ENTRY_BYTES = 16;
+
+    private final Board board;
+    /**
+     * 每一层预先分配的走法列表
+     */
+    private final MoveList[] moveLists;
+    /**
+     * 置换表，没有时为null。每一项为两个long：Zobrist键值与数据的异或，以及数据（节点数左移8位加上深度）。
+     * 多个线程共享时不加锁，读到被同时写入的不完整项时异或校验失败，视为没有命中
+     */
+    private final long[] table;
+
+    /**
+     * 构造
+     *
+     * @param board 棋盘，计数时在上面走子和撤销
+     * @param depth 最大深度
+     * @param table 置换表，可以为null
+     */
+    private Perft(Board board, int depth, long[] table) {
+        this.board = board;
+        this.table = table;
+        moveLists = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * 统计给定棋盘在给定深度的叶子节点数量（单线程，不使用置换表）
+     *
+     * @param board 棋盘
+     * @param depth 深度
+     * @return 叶子节点数量
+     */
+    public static long perft(Board board, int depth) {
+        return new Perft(board, depth, null).count(depth, 0);
+    }
+
+    /**
+     * 统计给定棋盘在给定深度的叶子节点数量
+     *
+     * @param board         棋盘，统计结束后复原
+     * @param depth         深度
+     * @param threads       线程数量，大于1时把根节点的走法分配到多个线程中
+     * @param hashMegabytes 置换表的大小（MB），0表示不使用置换表
+     * @param out           输出根节点每个走法的节点数（divide），为null时不输出
+     * @return 叶子节点数量
+     */
+    public static long perft(Board board, int depth, int threads, int hashMegabytes, PrintStream out) {
+        long[] table = hashMegabytes > 0 ? new long[Integer.highestOneBit(
+                (int) Math.min((long) hashMegabytes * 1024 * 1024 / HASH_ENTRY_BYTES, 1 << 28)) * 2] : null;
+        if (depth <= 0) {
+            return 1;
+        }
+
+        MoveList rootMoves = new MoveList();
+        board.generateLegalMoves(rootMoves);
+        long[] counts = new long[rootMoves.size()];
+
+        if (threads > 1) {
+            // 副本必须在拥有原棋盘的线程中创建
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < rootMoves.size(); i++) {
+                Board copy = board.getCopy();
+                int move = rootMoves.get(i);
+                tasks.add(() -> {
+                    copy.makeMove(move);
+                    return new Perft(copy, depth - 1, table).count(depth - 1, 0);
+                });
+            }
+            invokeAll(tasks, threads, counts);
+        } else {
+            Perft perft = new Perft(board, depth - 1, table);
+            for (int i = 0; i < rootMoves.size(); i++) {
+                board.makeMove(rootMoves.get(i));
+                counts[i] = perft.count(depth - 1, 0);
+                board.unmakeMove(rootMoves.get(i));
+            }
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (out != null) {
+                out.println(board.toMove(rootMoves.get(i)) + ": " + counts[i]);
+            }
+            nodes += counts[i];
+        }
+        return nodes;
+    }
+
+    /**
+     * 用位棋盘统计给定棋盘在给定深度的叶子节点数量，用于与{@link #perft(Board, int, int, int, PrintStream)}比较
+     *
+     * @param board   棋盘，只读取
+     * @param depth   深度
+     * @param threads 线程数量，大于1时把根节点的走法分配到多个线程中
+     * @param out     输出根节点每个走法的节点数（divide），为null时不输出
+     * @return 叶子节点数量
+     */
+    public static long perftBitBoard(Board board, int depth, int threads, PrintStream out) {
+        if (depth <= 0) {
+            return 1;
+        }
+
+        // 根节点的合法走法
+        BitBoard root = new BitBoard(board);
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int count = root.generateMoves(moves);
+        Alliance mover = root.getCurrTurn();
+        MoveList rootMoves = new MoveList();
+        for (int i = 0; i < count; i++) {
+            root.makeMove(moves[i]);
+            if (!root.isInCheck(mover)) {
+                rootMoves.add(moves[i]);
+            }
+            root.unmakeMove(moves[i]);
+        }
+        long[] counts = new long[rootMoves.size()];
+
+        if (threads > 1) {
+            // 位棋盘在拥有原棋盘的线程中创建
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < rootMoves.size(); i++) {
+                BitBoard copy = new BitBoard(board);
+                int move = rootMoves.get(i);
+                tasks.add(() -> {
+                    copy.makeMove(move);
+                    return copy.perft(depth - 1);
+                });
+            }
+            invokeAll(tasks, threads, counts);
+        } else {
+            for (int i = 0; i < rootMoves.size(); i++) {
+                root.makeMove(rootMoves.get(i));
+                counts[i] = root.perft(depth - 1);
+                root.unmakeMove(rootMoves.get(i));
+            }
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (out != null) {
+                int srcSquare = BitBoard.toSquare(BitBoard.getFrom(rootMoves.get(i)));
+                int destSquare = BitBoard.toSquare(BitBoard.getTo(rootMoves.get(i)));
+                int move = Move.encode(srcSquare, destSquare, board.getPieceCode(srcSquare), board.getPieceCode(destSquare));
+                out.println(board.toMove(move) + ": " + counts[i]);
+            }
+            nodes += counts[i];
+        }
+        return nodes;
+    }
+
+    /**
+     * 在给定数量的线程中执行全部任务，将结果依次写入给定数组
+     */
+    private static void invokeAll(List<Callable<Long>> tasks, int threads, long[] counts) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<Long>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = results.get(i).get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 递归统计当前棋盘在给定深度的叶子节点数量
+     *
+     * @param depth 剩余深度
+     * @param ply   距根节点的层数，用于选择走法列表
+     */
+    private long count(int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        MoveList moves = moveLists[ply];
+        board.generateLegalMoves(moves);
+        // 批量计数：最后一层不需要走子
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long zobristKey = board.getZobristKey();
+        int index = 0;
+        if (table != null) {
+            index = (int) (zobristKey ^ zobristKey >>> 32 ^ depth) & (table.length / 2 - 1);
+            long data = table[index * 2 + 1];
+            if ((table[index * 2] ^ data) == zobristKey && (int) (data & 0xff) == depth) {
+                return data >>> 8;
+            }
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            nodes += count(depth - 1, ply + 1);
+            board.unmakeMove(move);
+        }
+
+        if (table != null) {
+            long data = nodes << 8 | depth;
+            table[index * 2] = zobristKey ^ data;
+            table[index * 2 + 1] = data;
+        }
+        return nodes;
+    }
+
+    /**
+     * 用内置局面的参考值验证走法生成，并输出速度
+     *
+     * @param threads       线程数量
+     * @param hashMegabytes 置换表的大小（MB）
+     * @param bitBoard      是否同时验证位棋盘
+     * @param out           输出
+     * @return true, 全部正确，否则，false
+     */
+    public static boolean check(int threads, int hashMegabytes, boolean bitBoard, PrintStream out) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long boardNanos = 0;
+        long bitBoardNanos = 0;
+        for (int i = 0; i < REFERENCE_FENS.length; i++) {
+            Board board = Board.fromFen(REFERENCE_FENS[i]);
+            for (int depth = 1; depth <= REFERENCE_COUNTS[i].length; depth++) {
+                long expected = REFERENCE_COUNTS[i][depth - 1];
+                long start = System.nanoTime();
+                long nodes = perft(board, depth, threads, hashMegabytes, null);
+                boardNanos += System.nanoTime() - start;
+                boolean ok = nodes == expected;
+                String result = nodes + (ok ? "" : " (expected " + expected + ")");
+                if (bitBoard) {
+                    start = System.nanoTime();
+                    long bitBoardNodes = perftBitBoard(board, depth, threads, null);
+                    bitBoardNanos += System.nanoTime() - start;
+                    ok &= bitBoardNodes == expected;
+                    result += ", bitboard " + bitBoardNodes + (bitBoardNodes == expected ? "" : " (expected " + expected + ")");
+                }
+                passed &= ok;
+                totalNodes += expected;
+                out.println((ok ? "OK   " : "FAIL ") + REFERENCE_FENS[i] + " depth " + depth + ": " + result);
+            }
+        }
+        out.println("Time: " + getSpeed(totalNodes, boardNanos));
+        if (bitBoard) {
+            out.println("BitBoard time: " + getSpeed(totalNodes, bitBoardNanos));
+        }
+        return passed;
+    }
+
+    /**
+     * 返回给定节点数和用时（纳秒）对应的用时（毫秒）和速度（每秒节点数）
+     */
+    private static String getSpeed(long nodes, long nanos) {
+        long millis = Math.max(nanos / 1000000, 1);
+        return millis + " ms, " + nodes * 1000 / millis + " nps";
+    }
+
+    public static void main(String[] args) {
+        boolean check = false;
+        boolean divide = false;
+        boolean bitBoard = false;
+        int threads = 1;
+        int hashMegabytes = 0;
+        int depth = 4;
+        String fen = REFERENCE_FENS[0];
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-check":
+                    check = true;
+                    break;
+                case "-divide":
+                    divide = true;
+                    break;
+                case "-bitboard":
+                    bitBoard = true;
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (args[i].matches("\\d+")) {
+                        depth = Integer.parseInt(args[i]);
+                    } else {
+                        fen = args[i];
+                    }
+                    break;
+            }
+        }
+
+        if (check) {
+            boolean passed = check(threads, hashMegabytes, bitBoard, System.out);
+            System.out.println(passed ? "All passed" : "FAILED");
+            if (!passed) {
+                System.exit(1);
+            }
+        } else {
+            Board board = Board.fromFen(fen);
+            long start = System.nanoTime();
+            long nodes = perft(board, depth, threads, hashMegabytes, divide ? System.out : null);
+            System.out.println("Nodes: " + nodes);
+            System.out.println("Time: " + getSpeed(nodes, System.nanoTime() - start));
+            if (bitBoard) {
+                start = System.nanoTime();
+                long bitBoardNodes = perftBitBoard(board, depth, threads, divide ? System.out : null);
+                System.out.println("BitBoard nodes: " + bitBoardNodes + (bitBoardNodes == nodes ? "" : " (MISMATCH)"));
+                System.out.println("BitBoard time: " + getSpeed(bitBoardNodes, System.nanoTime() - start));
+                if (bitBoardNodes != nodes) {
+                    System.exit(1);
+                }
+            }
+        }
+    }
+}
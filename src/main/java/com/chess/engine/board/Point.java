@@ -5,41 +5,32 @@ import com.chess.engine.pieces.Piece;
 import java.util.Optional;
 
 /**
- * 棋盘上的每一个点
+ * 棋盘上的每一个点，即棋盘数组上某个格子的只读视图
  */
 public class Point {
+    /**
+     * 所属棋盘
+     */
+    private final Board board;
     /**
      * 位置
      */
     private final Coordinate position;
     /**
-     * 棋子
+     * 棋盘数组中对应的格子
      */
-    private Piece piece;
+    private final int square;
 
     /**
      * 构造
      *
+     * @param board    所属棋盘
      * @param position 位置
      */
-    Point(Coordinate position) {
+    Point(Board board, Coordinate position) {
+        this.board = board;
         this.position = position;
-    }
-
-    /**
-     * 设置棋子
-     *
-     * @param piece 棋子
-     */
-    void setPiece(Piece piece) {
-        this.piece = piece;
-    }
-
-    /**
-     * 移除棋子
-     */
-    void removePiece() {
-        piece = null;
+        square = BoardUtil.positionToSquare(position);
     }
 
     /**
@@ -48,7 +39,7 @@ public class Point {
      * @return true, 当前点位为空，否则，false
      */
     public boolean isEmpty() {
-        return piece == null;
+        return board.getPieceCode(square) == Piece.EMPTY;
     }
 
     /**
@@ -66,11 +57,12 @@ public class Point {
      * @return 当前位置的棋子（Optional对象）
      */
     public Optional<Piece> getPiece() {
-        return Optional.ofNullable(piece);
+        return Optional.ofNullable(board.getPiece(square));
     }
 
     @Override
     public String toString() {
+        Piece piece = board.getPiece(square);
         if (piece == null) {
             return "-";
         }
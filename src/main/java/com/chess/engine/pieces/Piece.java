@@ -2,17 +2,29 @@ package com.chess.engine.pieces;
 
 import com.chess.engine.Alliance;
 import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtil;
 import com.chess.engine.board.Coordinate;
 import com.chess.engine.board.Move;
-
-import java.util.Collection;
-import java.util.Objects;
+import com.chess.engine.board.MoveSink;
 
 /**
  * 中国象棋棋子
  */
 public abstract class Piece {
 
+    /**
+     * 空格子的编码
+     */
+    public static final int EMPTY = 0;
+    /**
+     * 黑方棋子编码的标志位
+     */
+    public static final int BLACK_FLAG = 8;
+    /**
+     * 棋盘外哨兵格子的编码
+     */
+    public static final int OFFBOARD = 16;
+
     /**
      * 所属阵营（红方或黑方）
      */
@@ -25,6 +37,14 @@ public abstract class Piece {
      * 棋子类型，如車、炮等
      */
     private final PieceType pieceType;
+    /**
+     * 棋子编码，低3位为棋子类型，第4位为黑方标志
+     */
+    private final int code;
+    /**
+     * 所属位置在棋盘数组中的格子
+     */
+    protected final int square;
     /**
      * 哈希码
      */
@@ -41,27 +61,110 @@ public abstract class Piece {
         this.pieceType = pieceType;
         this.position = position;
         this.alliance = alliance;
+        code = getCode(pieceType, alliance);
+        square = BoardUtil.positionToSquare(position);
         // 设置hash码
-        hashCode = getHashCode();
+        hashCode = code * BoardUtil.NUM_POSITIONS + BoardUtil.positionToIndex(position);
     }
 
     /**
-     * 返回当前棋子在给定棋盘上可以采取的合法走法的集合
+     * 返回给定棋子类型、所属阵营和位置对应的棋子。同一组参数总是返回同一个预先分配的实例
      *
-     * @param board 当前棋盘
-     * @return 当前棋子在给定棋盘上可以采取的合法走法的集合.
+     * @param pieceType 棋子类型
+     * @param alliance  所属阵营（红方或黑方）
+     * @param position  位置（必须在棋盘范围内）
+     * @return 对应的棋子
+     */
+    public static Piece of(PieceType pieceType, Alliance alliance, Coordinate position) {
+        return PieceCache.PIECES[getCode(pieceType, alliance) * BoardUtil.NUM_POSITIONS + BoardUtil.positionToIndex(position)];
+    }
+
+    /**
+     * 返回给定棋子编码和格子对应的棋子
+     *
+     * @param code   棋子编码
+     * @param square 棋盘数组中的格子（必须在棋盘范围内）
+     * @return 对应的棋子
+     */
+    public static Piece of(int code, int square) {
+        return PieceCache.PIECES[code * BoardUtil.NUM_POSITIONS + BoardUtil.squareToIndex(square)];
+    }
+
+    /**
+     * 返回给定棋子类型和所属阵营对应的棋子编码
+     *
+     * @param pieceType 棋子类型
+     * @param alliance  所属阵营（红方或黑方）
+     * @return 棋子编码
+     */
+    public static int getCode(PieceType pieceType, Alliance alliance) {
+        return (pieceType.ordinal() + 1) | (alliance.isRed() ? 0 : BLACK_FLAG);
+    }
+
+    /**
+     * 返回给定棋子编码对应的棋子类型
+     *
+     * @param code 棋子编码
+     * @return 棋子类型，空格子或哨兵格子时为null
      */
-    public abstract Collection<Move> getLegalMoves(Board board);
+    public static PieceType codeToPieceType(int code) {
+        return PieceType.CODE_TYPES[code & 7];
+    }
+
+    /**
+     * 返回给定棋子编码对应的所属阵营
+     *
+     * @param code 棋子编码
+     * @return 所属阵营（红方或黑方）
+     */
+    public static Alliance codeToAlliance(int code) {
+        return (code & BLACK_FLAG) == 0 ? Alliance.RED : Alliance.BLACK;
+    }
+
+    /**
+     * 检查给定编码是否为给定类型的棋子
+     *
+     * @param code      棋子编码
+     * @param pieceType 棋子类型
+     * @return true，是给定类型的棋子，否则，false
+     */
+    public static boolean isPieceType(int code, PieceType pieceType) {
+        return (code & 7) == pieceType.ordinal() + 1;
+    }
+
+    /**
+     * 检查给定编码的格子上是否是对方的棋子
+     *
+     * @param code 格子编码
+     * @return true，是对方的棋子，否则，false
+     */
+    boolean isEnemy(int code) {
+        return code != EMPTY && code != OFFBOARD && (code & BLACK_FLAG) != (this.code & BLACK_FLAG);
+    }
 
     /**
-     * 返回此棋子在给定棋盘上可以采取的合法走法的集合。将此棋子的攻击和防御添加到给定的各自集合中
+     * 按固定的顺序把当前棋子在给定棋盘上可以到达的格子报告给接收者：空格子和对方棋子所在的格子作为走法，
+     * 己方棋子所在的格子作为保护。不检查走子后是否送将
      *
-     * @param board    当前棋盘.
-     * @param attacks  要添加的攻击集合.
-     * @param defenses 要添加的防御集合.
-     * @return 在给定的棋盘上，这一棋子可以下的合法走法的集合.
+     * @param board 当前棋盘
+     * @param sink  接收者
      */
-    public abstract Collection<Move> getLegalMoves(Board board, Collection<Attack> attacks, Collection<Defense> defenses);
+    public abstract void generate(Board board, MoveSink sink);
+
+    /**
+     * 将到达给定格子的结果报告给接收者，棋盘外的格子忽略
+     *
+     * @param sink       接收者
+     * @param destSquare 到达的格子
+     * @param destCode   到达的格子的编码
+     */
+    final void visit(MoveSink sink, int destSquare, int destCode) {
+        if (destCode == EMPTY || isEnemy(destCode)) {
+            sink.accept(square, destSquare, destCode);
+        } else if (destCode != OFFBOARD) {
+            sink.defend(square, destSquare, destCode);
+        }
+    }
 
     /**
      * 根据给定的棋子落子对象落子并返回落子后的棋子对象
@@ -69,14 +172,18 @@ public abstract class Piece {
      * @param move 棋子落子对象
      * @return 落子后的棋子对象
      */
-    public abstract Piece movePiece(Move move);
+    public Piece movePiece(Move move) {
+        return of(pieceType, alliance, move.getDestPosition());
+    }
 
     /**
      * 返回此棋子的镜像副本(大约中间一列)
      *
      * @return 此棋子的镜像副本.
      */
-    public abstract Piece getMirrorPiece();
+    public Piece getMirrorPiece() {
+        return of(pieceType, alliance, BoardUtil.getMirrorPosition(position));
+    }
 
     /**
      * 获取结合材料和位置该棋子在中局的价值
@@ -87,6 +194,20 @@ public abstract class Piece {
         return alliance.isRed() ? pieceType.midGameValues[position.getRow()][position.getCol()] : pieceType.midGameValues[Board.NUM_ROWS - position.getRow() - 1][Board.NUM_COLS - position.getCol() - 1];
     }
 
+    /**
+     * 获取给定编码的棋子在给定格子上结合材料和位置的中局价值
+     *
+     * @param code   棋子编码
+     * @param square 棋盘数组中的格子
+     * @return 中局价值
+     */
+    public static int getMidgameValue(int code, int square) {
+        int row = BoardUtil.squareToRow(square);
+        int col = BoardUtil.squareToCol(square);
+        int[][] values = codeToPieceType(code).midGameValues;
+        return (code & BLACK_FLAG) == 0 ? values[row][col] : values[Board.NUM_ROWS - row - 1][Board.NUM_COLS - col - 1];
+    }
+
     /**
      * 获取结合材料和位置该棋子在终局的价值
      *
@@ -105,6 +226,24 @@ public abstract class Piece {
         return alliance.isRed() ? position.getRow() < Board.RIVER_ROW_RED : position.getRow() > Board.RIVER_ROW_BLACK;
     }
 
+    /**
+     * 该棋子的编码
+     *
+     * @return 该棋子的编码
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * 该棋子所属位置在棋盘数组中的格子
+     *
+     * @return 棋盘数组中的格子
+     */
+    public int getSquare() {
+        return square;
+    }
+
     /**
      * 该棋子棋子类型
      *
@@ -137,16 +276,12 @@ public abstract class Piece {
         return pieceType.toString();
     }
 
+    /**
+     * 棋子实例都是预先分配的唯一实例，相等即为同一实例
+     */
     @Override
     public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (!(obj instanceof Piece)) {
-            return false;
-        }
-        Piece other = (Piece) obj;
-        return this.position.equals(other.position) && this.alliance.equals(other.alliance) && this.pieceType.equals(other.pieceType);
+        return this == obj;
     }
 
     @Override
@@ -155,12 +290,44 @@ public abstract class Piece {
     }
 
     /**
-     * 获取哈希码
-     *
-     * @return 哈希码
+     * 预先分配的所有棋子实例（7种棋子 x 2个阵营 x 90个位置），按编码和位置索引。
+     * 放在单独的类中延迟初始化，避免与棋子类型的初始化互相依赖
      */
-    private int getHashCode() {
-        return Objects.hash(pieceType, alliance, position);
+    private static class PieceCache {
+
+        private static final Piece[] PIECES = new Piece[OFFBOARD * BoardUtil.NUM_POSITIONS];
+
+        static {
+            for (PieceType pieceType : PieceType.values()) {
+                for (Alliance alliance : Alliance.values()) {
+                    for (int row = 0; row < Board.NUM_ROWS; row++) {
+                        for (int col = 0; col < Board.NUM_COLS; col++) {
+                            Coordinate position = Coordinate.of(row, col);
+                            PIECES[getCode(pieceType, alliance) * BoardUtil.NUM_POSITIONS + BoardUtil.positionToIndex(position)] = create(pieceType, alliance, position);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Piece create(PieceType pieceType, Alliance alliance, Coordinate position) {
+            switch (pieceType) {
+                case SOLDIER:
+                    return new Soldier(position, alliance);
+                case ADVISOR:
+                    return new Advisor(position, alliance);
+                case ELEPHANT:
+                    return new Elephant(position, alliance);
+                case HORSE:
+                    return new Horse(position, alliance);
+                case CANNON:
+                    return new Cannon(position, alliance);
+                case CHARIOT:
+                    return new Chariot(position, alliance);
+                default:
+                    return new General(position, alliance);
+            }
+        }
     }
 
     /**
@@ -196,6 +363,11 @@ public abstract class Piece {
          */
         GENERAL("G", MIDGAME_VALUES_GENERAL, ENDGAME_VALUES_GENERAL, 0, 4, 0, 0, 0);
 
+        /**
+         * 按编码低3位索引的棋子类型
+         */
+        private static final PieceType[] CODE_TYPES = {null, SOLDIER, ADVISOR, ELEPHANT, HORSE, CANNON, CHARIOT, GENERAL};
+
         /**
          * 简写
          */
@@ -361,78 +533,4 @@ public abstract class Piece {
      * 将/帅终局值
      */
     private static int[][] ENDGAME_VALUES_GENERAL = {{0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 25, 70, 25, 0, 0, 0}, {0, 0, 0, 15, 60, 15, 0, 0, 0}, {0, 0, 0, 5, 55, 5, 0, 0, 0}};
-
-    /**
-     * 关系
-     */
-    public static abstract class Relation {
-
-        /**
-         * 棋子
-         */
-        final Piece piece;
-        /**
-         * 相关棋子
-         */
-        final Collection<Piece> relatedPieces;
-
-        /**
-         * 构造
-         *
-         * @param piece         棋子
-         * @param relatedPieces 相关棋子
-         */
-        private Relation(Piece piece, Collection<Piece> relatedPieces) {
-            this.piece = piece;
-            this.relatedPieces = relatedPieces;
-        }
-
-        /**
-         * 获取棋子
-         *
-         * @return 棋子
-         */
-        public Piece getPiece() {
-            return piece;
-        }
-
-        /**
-         * 获取相关棋子
-         *
-         * @return 相关棋子
-         */
-        public Collection<Piece> getRelatedPieces() {
-            return relatedPieces;
-        }
-    }
-
-    /**
-     * 棋子的攻击
-     */
-    public static class Attack extends Relation {
-        /**
-         * 构造
-         *
-         * @param attackingPiece 进攻性棋子
-         * @param attackedPieces 被攻击的棋子
-         */
-        public Attack(Piece attackingPiece, Collection<Piece> attackedPieces) {
-            super(attackingPiece, attackedPieces);
-        }
-    }
-
-    /**
-     * 棋子的防御
-     */
-    public static class Defense extends Relation {
-        /**
-         * 构造
-         *
-         * @param defendingPiece 防护性棋子
-         * @param defendedPieces 被防护的棋子
-         */
-        public Defense(Piece defendingPiece, Collection<Piece> defendedPieces) {
-            super(defendingPiece, defendedPieces);
-        }
-    }
 }
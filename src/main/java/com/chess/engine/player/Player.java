@@ -1,16 +1,12 @@
 package com.chess.engine.player;
 
 import com.chess.engine.Alliance;
-import com.chess.engine.board.Coordinate;
+import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
 import com.chess.engine.pieces.Piece;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
-
-import static com.chess.engine.pieces.Piece.*;
 
 /**
  * 中国象棋棋手.
@@ -21,54 +17,26 @@ public class Player {
      */
     private final Alliance alliance;
     /**
-     * 当前玩家可以活动的棋子集合
+     * 当前玩家可以活动的棋子集合，按需从棋盘读取
      */
-    private final Collection<Piece> activePieces;
+    private Collection<Piece> activePieces;
     /**
-     * 当前玩家在给定棋盘上可以采取的合法走法的集合
+     * 当前玩家在给定棋盘上可以采取的合法走法的集合，按需从棋盘读取
      */
-    private final Collection<Move> legalMoves;
-    private final boolean isInCheck;
-    private final int totalMobilityValue;
-    private final Collection<Attack> attacks;
-    private final Collection<Defense> defenses;
-
-    public Player(Alliance alliance, Collection<Piece> activePieces, Collection<Move> legalMoves, Collection<Move> oppLegalMoves, int totalMobilityValue, Collection<Attack> attacks, Collection<Defense> defenses) {
-        this.alliance = alliance;
-        this.activePieces = activePieces;
-        this.legalMoves = legalMoves;
-        isInCheck = !getIncomingAttacks(findPlayerGeneral().getPosition(), oppLegalMoves).isEmpty();
-        this.totalMobilityValue = totalMobilityValue;
-        this.attacks = attacks;
-        this.defenses = defenses;
-    }
-
+    private Collection<Move> legalMoves;
     /**
-     * Returns the general of this player.
+     * 当前玩家是否被将军
      */
-    private Piece findPlayerGeneral() {
-        for (Piece piece : activePieces) {
-            if (piece.getPieceType().equals(PieceType.GENERAL)) {
-                return piece;
-            }
-        }
-
-        throw new RuntimeException(getAlliance().toString() + " GENERAL missing");
-    }
-
+    private final boolean isInCheck;
     /**
-     * Returns a collection of opponent moves that attack the given position.
+     * 当前玩家所在的棋盘。棋子、走法和机动性在本玩家所属的局面下从其攻击表中读取
      */
-    private static Collection<Move> getIncomingAttacks(Coordinate position, Collection<Move> opponentMoves) {
-        List<Move> attacksOnPoint = new ArrayList<>();
+    private final Board board;
 
-        for (Move move : opponentMoves) {
-            if (move.getDestPosition().equals(position)) {
-                attacksOnPoint.add(move);
-            }
-        }
-
-        return Collections.unmodifiableList(attacksOnPoint);
+    public Player(Board board, Alliance alliance) {
+        this.board = board;
+        this.alliance = alliance;
+        isInCheck = board.isInCheck(alliance);
     }
 
     public Alliance getAlliance() {
@@ -76,6 +44,9 @@ public class Player {
     }
 
     public Collection<Piece> getActivePieces() {
+        if (activePieces == null) {
+            activePieces = board.getActivePieces(alliance);
+        }
         return Collections.unmodifiableCollection(activePieces);
     }
 
@@ -85,6 +56,9 @@ public class Player {
      * @return 当前玩家在给定棋盘上可以采取的合法走法的集合
      */
     public Collection<Move> getLegalMoves() {
+        if (legalMoves == null) {
+            legalMoves = board.getLegalMoves(alliance);
+        }
         return Collections.unmodifiableCollection(legalMoves);
     }
 
@@ -92,15 +66,12 @@ public class Player {
         return isInCheck;
     }
 
+    /**
+     * 获取当前玩家全部棋子的机动性总值（按棋盘的当前局面计算）
+     *
+     * @return 机动性总值
+     */
     public int getTotalMobilityValue() {
-        return totalMobilityValue;
-    }
-
-    public Collection<Attack> getAttacks() {
-        return Collections.unmodifiableCollection(attacks);
-    }
-
-    public Collection<Defense> getDefenses() {
-        return Collections.unmodifiableCollection(defenses);
+        return board.getMobilityValue(alliance);
     }
 }
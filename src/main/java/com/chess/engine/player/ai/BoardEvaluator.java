@@ -4,17 +4,12 @@ import com.chess.engine.Alliance;
 import com.chess.engine.board.Board;
 import com.chess.engine.board.BoardUtil;
 import com.chess.engine.board.Coordinate;
-import com.chess.engine.board.Point;
 import com.chess.engine.pieces.General;
 import com.chess.engine.pieces.Piece;
 import com.chess.engine.player.Player;
-import com.chess.gui.Table;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 import static com.chess.engine.board.Board.*;
@@ -27,9 +22,9 @@ class BoardEvaluator {
 
     private static final Random rand = new Random();
     private static final int RANDOM_BOUND = 10;
-    private static final Coordinate FORWARD_VECTOR = new Coordinate(1, 0);
-    private static final Coordinate PALACE_CENTRE_RED = new Coordinate(8, 4);
-    private static final Coordinate PALACE_CENTRE_BLACK = new Coordinate(1, 4);
+    private static final int FORWARD_DIRECTION = BoardUtil.SQUARE_ROW_WIDTH;
+    private static final int PALACE_CENTRE_RED_SQUARE = BoardUtil.toSquare(8, 4);
+    private static final int PALACE_CENTRE_BLACK_SQUARE = BoardUtil.toSquare(1, 4);
 
     private static final int CHECKMATE_VALUE = 10000;
     private static final int MAX_SIMPLE_UNITS = 66;
@@ -56,11 +51,13 @@ class BoardEvaluator {
      * Returns the heuristic value of the given board.
      * The higher the value, the better for the red player.
      * @param board The current board.
+     * @param randomised Whether to add a small random value.
      * @return The heuristic value of the given board.
      */
-    static int evaluate(Board board) {
-        return board.isCurrPlayerCheckmated() ? getCheckmateValue(board.getCurrPlayer().getAlliance(), 0)
-                : (getScoreDiff(board) + (Table.getInstance().isAIRandomised() ? rand.nextInt(RANDOM_BOUND) : 0));
+    static int evaluate(Board board, boolean randomised) {
+        return board.hasLegalMove()
+                ? (getScoreDiff(board) + (randomised ? rand.nextInt(RANDOM_BOUND) : 0))
+                : getCheckmateValue(board.getCurrPlayer().getAlliance(), 0);
     }
 
     /**
@@ -160,14 +157,12 @@ class BoardEvaluator {
 
         // general on palace centre might be bad when having 2 advisors
         if (redAdvisorCount == 2) {
-           if (board.getPoint(PALACE_CENTRE_RED).getPiece()
-                   .map(p -> p.getPieceType().equals(PieceType.GENERAL)).orElse(false)) {
+           if (isPieceType(board.getPieceCode(PALACE_CENTRE_RED_SQUARE), PieceType.GENERAL)) {
                redScore -= GENERAL_PENALTY;
            }
         }
         if (blackAdvisorCount == 2) {
-            if (board.getPoint(PALACE_CENTRE_BLACK).getPiece()
-                    .map(p -> p.getPieceType().equals(PieceType.GENERAL)).orElse(false)) {
+            if (isPieceType(board.getPieceCode(PALACE_CENTRE_BLACK_SQUARE), PieceType.GENERAL)) {
                 blackScore -= GENERAL_PENALTY;
             }
         }
@@ -209,20 +204,10 @@ class BoardEvaluator {
             blackScore += getCannonBonus(board, totalSimpleUnits, blackAttackValue, cannon, blackChariots);
         }
 
-        // store all attacks and defenses into maps
-        Map<Piece, List<Piece>> incomingAttacksMap = new HashMap<>();
-        Map<Piece, List<Piece>> defendingPiecesMap = new HashMap<>();
-        storeRelationIntoMap(redPlayer.getAttacks(), incomingAttacksMap);
-        storeRelationIntoMap(blackPlayer.getAttacks(), incomingAttacksMap);
-        storeRelationIntoMap(redPlayer.getDefenses(), defendingPiecesMap);
-        storeRelationIntoMap(blackPlayer.getDefenses(), defendingPiecesMap);
-
-        // calculate relation scores
+        // calculate relation scores from the attack map
         int relationScoreDiff =
-                calculateRelationScore(pieceValues, redPlayer.getActivePieces(),
-                        incomingAttacksMap, defendingPiecesMap)
-                - calculateRelationScore(pieceValues, blackPlayer.getActivePieces(),
-                        incomingAttacksMap, defendingPiecesMap);
+                calculateRelationScore(board, pieceValues, redPlayer.getActivePieces())
+                - calculateRelationScore(board, pieceValues, blackPlayer.getActivePieces());
 
         return redScore - blackScore + relationScoreDiff;
     }
@@ -239,9 +224,8 @@ class BoardEvaluator {
         int cannonRank = BoardUtil.rowToRank(cannonPosition.getRow(), cannonAlliance);
 
         // check if opponent general is in starting position
-        Point oppGeneralStartPoint = board.getPoint(General.getStartingPosition(oppAlliance));
-        if (oppGeneralStartPoint.isEmpty()
-                || !oppGeneralStartPoint.getPiece().get().getPieceType().equals(PieceType.GENERAL)) {
+        int oppGeneralStartCode = board.getPieceCode(BoardUtil.positionToSquare(General.getStartingPosition(oppAlliance)));
+        if (!isPieceType(oppGeneralStartCode, PieceType.GENERAL)) {
             return 0;
         }
 
@@ -253,18 +237,18 @@ class BoardEvaluator {
 
             // check pieces between cannon and opponent general
             int pieceCount = 0;
-            Coordinate position = cannonPosition.add(FORWARD_VECTOR.scale(cannonAlliance.getDirection()));
-            while (BoardUtil.isWithinBounds(position)) {
-                Point point = board.getPoint(position);
-                if (!point.isEmpty()) {
-                    Piece piece = point.getPiece().get();
-                    if (piece.getPieceType().equals(PieceType.GENERAL)) break;
+            int direction = FORWARD_DIRECTION * cannonAlliance.getDirection();
+            int square = BoardUtil.positionToSquare(cannonPosition) + direction;
+            int code;
+            while ((code = board.getPieceCode(square)) != OFFBOARD) {
+                if (code != EMPTY) {
+                    if (isPieceType(code, PieceType.GENERAL)) break;
                     pieceCount++;
                     if (pieceCount > 2) {
                         return 0;
                     }
                 }
-                position = position.add(FORWARD_VECTOR.scale(cannonAlliance.getDirection()));
+                square += direction;
             }
 
             if (pieceCount == 0) { // advisors at start
@@ -274,11 +258,8 @@ class BoardEvaluator {
 
             // pieceCount == 2, left/right advisors
             // check opp central horse
-            Coordinate centralHorsePosition = oppAlliance.isRed() ? PALACE_CENTRE_RED : PALACE_CENTRE_BLACK;
-            Point centralHorsePoint = board.getPoint(centralHorsePosition);
-            if (!centralHorsePoint.isEmpty()
-                    && centralHorsePoint.getPiece().get().getPieceType().equals(PieceType.HORSE)
-                    && centralHorsePoint.getPiece().get().getAlliance().equals(oppAlliance)) {
+            int centralHorseSquare = oppAlliance.isRed() ? PALACE_CENTRE_RED_SQUARE : PALACE_CENTRE_BLACK_SQUARE;
+            if (board.getPieceCode(centralHorseSquare) == getCode(PieceType.HORSE, oppAlliance)) {
                 return CANNON_CENTRAL_BONUS[cannonRank - 1];
             }
 
@@ -313,30 +294,10 @@ class BoardEvaluator {
         return 0;
     }
 
-    /**
-     * Stores the given collection of relations into a map.
-     */
-    private static void storeRelationIntoMap(Collection<? extends Relation> relations, Map<Piece, List<Piece>> map) {
-        for (Relation relation : relations) {
-            Piece piece = relation.getPiece();
-            for (Piece relatedPiece : relation.getRelatedPieces()) {
-                if (map.containsKey(relatedPiece)) {
-                    map.get(relatedPiece).add(piece);
-                } else {
-                    List<Piece> pieces = new ArrayList<>();
-                    pieces.add(piece);
-                    map.put(relatedPiece, pieces);
-                }
-            }
-        }
-    }
-
     /**
      * Returns the total relation score of the given pieces (same alliance).
      */
-    private static int calculateRelationScore(int[] pieceValues, Collection<Piece> pieces,
-                                              Map<Piece, List<Piece>> incomingAttacksMap,
-                                              Map<Piece, List<Piece>> defendingPiecesMap) {
+    private static int calculateRelationScore(Board board, int[] pieceValues, Collection<Piece> pieces) {
         int score = 0;
 
         for (Piece piece : pieces) {
@@ -344,28 +305,30 @@ class BoardEvaluator {
             if (pieceType.equals(PieceType.GENERAL)) continue;
 
             int pieceValue = pieceValues[BoardUtil.positionToIndex(piece.getPosition())];
-            List<Piece> attackingPieces = incomingAttacksMap.get(piece);
-            List<Piece> defendingPieces = defendingPiecesMap.get(piece);
+            int attackingSlots = board.getAttackers(piece.getSquare(), piece.getAlliance().opposite());
+            int defendingSlots = board.getAttackers(piece.getSquare(), piece.getAlliance());
 
             // add defense scores
-            if (defendingPieces != null && !pieceType.equals(PieceType.CHARIOT)) {
+            if (defendingSlots != 0 && !pieceType.equals(PieceType.CHARIOT)) {
                 score += pieceValue / DEFENSE_BONUS_FACTOR;
             }
 
-            if (attackingPieces == null || defendingPieces == null || defendingPieces.size() != 1
-                    || !defendingPieces.get(0).getPieceType().equals(PieceType.CHARIOT)) continue;
+            if (attackingSlots == 0 || Integer.bitCount(defendingSlots) != 1) continue;
+            Piece defendingPiece = board.getSlotPiece(Integer.numberOfTrailingZeros(defendingSlots));
+            if (!defendingPiece.getPieceType().equals(PieceType.CHARIOT)) continue;
 
             // add pin penalty
-            for (Piece attackingPiece : attackingPieces) {
+            for (int slots = attackingSlots; slots != 0; slots &= slots - 1) {
+                Piece attackingPiece = board.getSlotPiece(Integer.numberOfTrailingZeros(slots));
                 if (attackingPiece.getPieceType().equals(PieceType.CHARIOT)
                         && !piece.getPieceType().equals(PieceType.CHARIOT)
-                        && defendingPiecesMap.get(defendingPieces.get(0)) == null) {
-                    if (BoardUtil.sameColOrRow(attackingPiece.getPosition(), defendingPieces.get(0).getPosition())) {
+                        && board.getAttackers(defendingPiece.getSquare(), defendingPiece.getAlliance()) == 0) {
+                    if (BoardUtil.sameColOrRow(attackingPiece.getPosition(), defendingPiece.getPosition())) {
                         score -= pieceValue / CHARIOT_PIN_FACTOR;
                     }
                 } else if (attackingPiece.getPieceType().equals(PieceType.CANNON)
                         && !piece.getPieceType().equals(PieceType.CANNON)) {
-                    if (BoardUtil.sameColOrRow(attackingPiece.getPosition(), defendingPieces.get(0).getPosition())) {
+                    if (BoardUtil.sameColOrRow(attackingPiece.getPosition(), defendingPiece.getPosition())) {
                         score -= pieceValue / CANNON_PIN_FACTOR;
                     }
                 }
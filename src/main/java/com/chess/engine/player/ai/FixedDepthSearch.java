@@ -12,14 +12,73 @@ import java.util.List;
 public class FixedDepthSearch extends MiniMax {
 
     private final int searchDepth;
+    private final boolean deterministic;
+    private int bestVal;
 
     public FixedDepthSearch(Board board, Collection<Move> legalMoves, int searchDepth) {
-        super(board, legalMoves, searchDepth > 6);
+        this(board, legalMoves, searchDepth, 1);
+    }
+
+    /**
+     * @param threads The number of search threads; more than one adds Lazy SMP helpers.
+     */
+    public FixedDepthSearch(Board board, Collection<Move> legalMoves, int searchDepth, int threads) {
+        this(board, legalMoves, searchDepth, threads, false);
+    }
+
+    /**
+     * @param threads The number of search threads.
+     * @param deterministic Whether to split the root moves across the threads instead of using Lazy SMP helpers,
+     *                      which returns the same move, value and node count for any number of threads. That
+     *                      result may differ from the one of the Lazy SMP and single-threaded search.
+     */
+    public FixedDepthSearch(Board board, Collection<Move> legalMoves, int searchDepth, int threads, boolean deterministic) {
+        this(board, legalMoves, searchDepth, threads, deterministic, false, new TranspositionTable());
+    }
+
+    /**
+     * @param threads The number of search threads.
+     * @param deterministic Whether to split the root moves across the threads instead of using Lazy SMP helpers.
+     * @param randomised Whether to add a small random value to every evaluation.
+     * @param tTable The transposition table kept for the game.
+     */
+    public FixedDepthSearch(Board board, Collection<Move> legalMoves, int searchDepth, int threads, boolean deterministic,
+                            boolean randomised, TranspositionTable tTable) {
+        super(board, legalMoves, searchDepth > 6, threads, randomised, tTable);
         this.searchDepth = searchDepth;
+        this.deterministic = deterministic;
     }
 
-    @Override
+    /**
+     * Returns the best move using the corresponding MiniMax algorithm.
+     * @return The best move using the corresponding MiniMax algorithm.
+     */
     public Move search() {
+        if (deterministic) {
+            startRootPool();
+        } else {
+            startHelpers();
+        }
+        try {
+            return searchToDepth();
+        } finally {
+            if (deterministic) {
+                stopRootPool();
+            } else {
+                stopHelpers();
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the best move found by the last search, from the side to move.
+     * @return The value of the best move.
+     */
+    public int getBestVal() {
+        return bestVal;
+    }
+
+    private Move searchToDepth() {
         MoveEntry bestMoveEntry = null;
 
         int alpha = NEG_INF;
@@ -29,13 +88,18 @@ public class FixedDepthSearch extends MiniMax {
 
         while (currDepth <= searchDepth) {
             // get value-sorted move entries for the current depth (best move at the front)
-            List<MoveEntry> newMoveEntries = alphaBetaRoot(oldMoveEntries, currDepth, alpha, beta);
+            List<MoveEntry> newMoveEntries = deterministic
+                    ? alphaBetaRootParallel(oldMoveEntries, currDepth, alpha, beta)
+                    : alphaBetaRoot(oldMoveEntries, currDepth, alpha, beta);
+            if (isStopped()) { // keep the best move of the last finished iteration
+                break;
+            }
             bestMoveEntry = newMoveEntries.get(0);
+            bestVal = bestMoveEntry.val;
             if (newMoveEntries.size() == 1) {
                 return bestMoveEntry.move;
             }
 
-            int bestVal = bestMoveEntry.val;
             if (bestVal <= alpha || bestVal >= beta) { // reset aspiration window
                 alpha = NEG_INF;
                 beta = POS_INF;
@@ -49,7 +113,6 @@ public class FixedDepthSearch extends MiniMax {
             currDepth++;
         }
 
-        assert bestMoveEntry != null;
-        return bestMoveEntry.move;
+        return bestMoveEntry != null ? bestMoveEntry.move : oldMoveEntries.get(0).move;
     }
 }
@@ -19,14 +19,44 @@ public class FixedTimeSearch extends MiniMax {
 
     public FixedTimeSearch(Board board, Collection<Move> legalMoves,
                            FixedTimeAIPlayer fixedTimeAIPlayer, long endTime) {
-        super(board, legalMoves, true);
+        this(board, legalMoves, fixedTimeAIPlayer, endTime, 1);
+    }
+
+    /**
+     * @param threads The number of search threads; more than one adds Lazy SMP helpers.
+     */
+    public FixedTimeSearch(Board board, Collection<Move> legalMoves,
+                           FixedTimeAIPlayer fixedTimeAIPlayer, long endTime, int threads) {
+        this(board, legalMoves, fixedTimeAIPlayer, endTime, threads, false, new TranspositionTable());
+    }
+
+    /**
+     * @param threads The number of search threads; more than one adds Lazy SMP helpers.
+     * @param randomised Whether to add a small random value to every evaluation.
+     * @param tTable The transposition table kept for the game.
+     */
+    public FixedTimeSearch(Board board, Collection<Move> legalMoves, FixedTimeAIPlayer fixedTimeAIPlayer,
+                           long endTime, int threads, boolean randomised, TranspositionTable tTable) {
+        super(board, legalMoves, true, threads, randomised, tTable);
         this.endTime = endTime;
         support = new PropertyChangeSupport(this);
         support.addPropertyChangeListener(fixedTimeAIPlayer);
     }
 
-    @Override
+    /**
+     * Returns the best move using the corresponding MiniMax algorithm.
+     * @return The best move using the corresponding MiniMax algorithm.
+     */
     public Move search() {
+        startHelpers();
+        try {
+            return searchToTime();
+        } finally {
+            stopHelpers();
+        }
+    }
+
+    private Move searchToTime() {
         MoveEntry bestMoveEntry = null;
 
         int alpha = NEG_INF;
@@ -37,6 +67,9 @@ public class FixedTimeSearch extends MiniMax {
         while (System.currentTimeMillis() < endTime) {
             // get value-sorted move entries for the current depth (best move at the front)
             List<MoveEntry> newMoveEntries = alphaBetaRoot(oldMoveEntries, currDepth, alpha, beta);
+            if (isStopped()) { // keep the best move of the last finished iteration
+                break;
+            }
             bestMoveEntry = newMoveEntries.get(0);
 
             int bestVal = bestMoveEntry.val;
@@ -55,7 +88,6 @@ public class FixedTimeSearch extends MiniMax {
             currDepth++;
         }
 
-        assert bestMoveEntry != null;
-        return bestMoveEntry.move;
+        return bestMoveEntry != null ? bestMoveEntry.move : oldMoveEntries.get(0).move;
     }
 }
@@ -2,12 +2,21 @@ package com.chess.engine.player.ai;
 
 import com.chess.engine.board.Board;
 import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveList;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.ai.TranspositionTable.Flag;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Represents a MiniMax algorithm.
@@ -19,25 +28,138 @@ abstract class MiniMax {
     static final int ASP = 50; // aspiration window
     private static final int R_LOW = 2; // low depth reduction
     private static final int R_HIGH = 3; // high depth reduction
-    private static final int TT_SIZE = 1000003; // transposition table size
+    private static final int R_DEPTH_DIVISOR = 6; // one more ply of null move reduction per this many plies of depth
+    private static final int MAX_PLY = 128; // maximum search ply, including quiescence
+    private static final int MAX_HELPER_DEPTH = MAX_PLY / 2; // deepest iteration of a helper thread
+    private static final int ROOT_MOVE_TT_MEGABYTES = 1; // transposition table size of each root move
+    private static final int MAX_KEPT_ROOT_MOVE_TABLES = 16; // root move tables kept for reuse, the rest are freed
+    // transposition tables of root moves, reused by later deterministic searches instead of reallocated
+    private static final Queue<TranspositionTable> ROOT_MOVE_TABLES = new ArrayBlockingQueue<>(MAX_KEPT_ROOT_MOVE_TABLES);
 
     private final Board startBoard; // initial board
     private final List<Move> legalMoves; // initial legal moves (simple-sorted)
-    private final TTable tTable; // transposition table
+    private final TranspositionTable tTable; // transposition table
+    private final MoveList[] moveLists; // preallocated move list for each ply
     private final int R; // variable depth reduction for null move pruning
+    private final int threads; // number of search threads, including the one calling search()
+    private final boolean randomised; // whether a small random value is added to every evaluation
+    private final List<MiniMax> helpers; // running Lazy SMP helpers
+    private final List<Thread> helperThreads; // threads running the helpers
+    private final Map<Move, MiniMax> rootMoveSearches; // searches of each root move in the deterministic parallel mode
+    private final MiniMax main; // the search whose stop() also stops this one, or this search itself
+    private ForkJoinPool rootPool; // workers of the deterministic parallel mode, or null
+    private volatile boolean stopped; // set to abandon the search
+    private long nodes; // nodes searched by this thread and finished helpers
+    private int repetitions; // repetitions scored so far, which keep the nodes above them out of the table
 
-    MiniMax(Board startBoard, Collection<Move> legalMoves, boolean high) {
+    /**
+     * @param randomised Whether to add a small random value to every evaluation, so that the moves vary between games.
+     * @param tTable The transposition table, which may hold the results of earlier searches of the same game;
+     *               they age by one generation.
+     */
+    MiniMax(Board startBoard, Collection<Move> legalMoves, boolean high, int threads, boolean randomised,
+            TranspositionTable tTable) {
+        this(null, startBoard, legalMoves, high ? R_HIGH : R_LOW, threads, randomised, tTable);
+        tTable.incrementGeneration();
+    }
+
+    private MiniMax(MiniMax main, Board startBoard, Collection<Move> legalMoves, int R, int threads,
+                    boolean randomised, TranspositionTable tTable) {
+        this.main = main == null ? this : main;
         this.startBoard = startBoard;
         this.legalMoves = MoveSorter.simpleSort(legalMoves);
-        tTable = new TTable();
-        R = high ? R_HIGH : R_LOW;
+        this.tTable = tTable;
+        moveLists = new MoveList[MAX_PLY];
+        for (int i = 0; i < MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+        this.R = R;
+        this.threads = threads;
+        this.randomised = randomised;
+        helpers = new ArrayList<>();
+        helperThreads = new ArrayList<>();
+        rootMoveSearches = new HashMap<>();
+    }
+
+    /**
+     * Starts the Lazy SMP helper threads. Each helper searches the same root on its own board copy, at depths
+     * staggered against the other helpers, and shares its results only through the transposition table.
+     */
+    void startHelpers() {
+        for (int i = 1; i < threads; i++) {
+            // the copy must be made by the thread that owns the start board
+            Helper helper = new Helper(this, startBoard.getCopy(), i);
+            Thread thread = new Thread(helper::run, "Search helper " + i);
+            thread.setDaemon(true);
+            helpers.add(helper);
+            helperThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the helper threads and waits for them to finish, adding their nodes to this search.
+     */
+    void stopHelpers() {
+        for (MiniMax helper : helpers) {
+            helper.stopped = true;
+        }
+        for (int i = 0; i < helpers.size(); i++) {
+            try {
+                helperThreads.get(i).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helpers.get(i).nodes;
+        }
+        helpers.clear();
+        helperThreads.clear();
+    }
+
+    /**
+     * Starts the workers of the deterministic parallel root search, one per search thread.
+     */
+    void startRootPool() {
+        rootPool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Shuts down the workers of the deterministic parallel root search, adding the nodes of every root move and
+     * returning their transposition tables for reuse. Tables beyond {@link #MAX_KEPT_ROOT_MOVE_TABLES} are dropped,
+     * so that the memory of a search with many root moves is not held for the rest of the process.
+     */
+    void stopRootPool() {
+        rootPool.shutdown();
+        rootPool = null;
+        for (MiniMax rootMoveSearch : rootMoveSearches.values()) {
+            nodes += rootMoveSearch.nodes;
+            ROOT_MOVE_TABLES.offer(rootMoveSearch.tTable);
+        }
+        rootMoveSearches.clear();
+    }
+
+    /**
+     * Stops the search, its helpers and its root move searches from any thread. The unfinished iteration is
+     * discarded and nothing more is stored into the transposition table once the search returns.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Returns whether this search, or the search it works for, has been stopped.
+     */
+    boolean isStopped() {
+        return stopped || main.stopped;
     }
 
     /**
-     * Returns the best move using the corresponding MiniMax algorithm.
-     * @return The best move using the corresponding MiniMax algorithm.
+     * Returns the number of nodes searched, including stopped helpers.
+     * @return The number of nodes searched.
      */
-    public abstract Move search();
+    public long getNodeCount() {
+        return nodes;
+    }
 
     /**
      * Returns a simple-sorted list of move entries of the initial legal moves.
@@ -57,7 +179,8 @@ abstract class MiniMax {
      * @param depth The search depth.
      * @param alpha The lower bound.
      * @param beta The upper bound.
-     * @return A value-sorted list of move entries at the given search depth, with the best move at the front.
+     * @return A value-sorted list of move entries at the given search depth, with the best move at the front,
+     *         or the given list if the search has been stopped.
      */
     List<MoveEntry> alphaBetaRoot(List<MoveEntry> oldMoveEntries, int depth, int alpha, int beta) {
         List<MoveEntry> newMoveEntries = new ArrayList<>();
@@ -68,29 +191,36 @@ abstract class MiniMax {
         for (MoveEntry moveEntry : oldMoveEntries) {
             Move move = moveEntry.move;
             startBoard.makeMove(move);
-            if (startBoard.isStateAllowed()) {
-                int val;
-                if (searchedMoves == 0) { // search best move with full window
-                    val = -alphaBeta(startBoard, depth - 1, -beta, -alpha, true);
-                } else { // search remaining moves with null window
-                    val = -alphaBeta(startBoard, depth - 1, -alpha - 1, -alpha, true);
-                    if (val > alpha && val < beta) { // research with full window
-                        val = -alphaBeta(startBoard, depth - 1, -beta, -alpha, true);
-                    }
-                }
-                if (val > bestVal) {
-                    bestVal = val;
-                    bestMoveEntry = moveEntry;
-                    alpha = Math.max(alpha, val);
+            int val;
+            if (searchedMoves == 0) { // search best move with full window
+                val = -alphaBeta(startBoard, depth - 1, 1, -beta, -alpha);
+            } else { // search remaining moves with null window
+                val = -alphaBeta(startBoard, depth - 1, 1, -alpha - 1, -alpha);
+                if (val > alpha && val < beta) { // research with full window
+                    val = -alphaBeta(startBoard, depth - 1, 1, -beta, -alpha);
                 }
-                newMoveEntries.add(new MoveEntry(move, val));
             }
+            if (val > bestVal) {
+                bestVal = val;
+                bestMoveEntry = moveEntry;
+                alpha = Math.max(alpha, val);
+            }
+            newMoveEntries.add(new MoveEntry(move, val));
             startBoard.unmakeMove(move);
+            if (isStopped()) {
+                return oldMoveEntries;
+            }
             searchedMoves++;
         }
         assert bestMoveEntry != null;
 
-        // sort new move entries and swap best entry to the front
+        return sortMoveEntries(newMoveEntries, bestMoveEntry);
+    }
+
+    /**
+     * Sorts the given move entries by value and swaps the best entry to the front.
+     */
+    private static List<MoveEntry> sortMoveEntries(List<MoveEntry> newMoveEntries, MoveEntry bestMoveEntry) {
         newMoveEntries.sort(MoveSorter.MOVE_ENTRY_COMPARATOR);
         int bestIndex = 0;
         for (int i = 0; i < newMoveEntries.size(); i++) {
@@ -104,36 +234,140 @@ abstract class MiniMax {
         return Collections.unmodifiableList(newMoveEntries);
     }
 
+    /**
+     * The root method of the deterministic parallel alpha-beta search, a Young Brothers Wait split at the root.
+     * Every root move is searched on its own board copy with its own transposition table, so its value only depends
+     * on the windows it has been searched with and never on thread timing. The first move is searched with the full
+     * window, the remaining moves are then tested in parallel with a null window at the bound it set, and the results
+     * are taken in order, testing again and re-searching on this thread where {@link #alphaBetaRoot} would. The result
+     * is the same for any number of threads, including one, but it is not the result of {@link #alphaBetaRoot}: there
+     * every root move shares one transposition table and sees what its elder brothers stored, so the two modes may
+     * pick different moves and search different numbers of nodes.
+     * @param oldMoveEntries The list of move entries to search, with the best move at the front.
+     * @param depth The search depth.
+     * @param alpha The lower bound.
+     * @param beta The upper bound.
+     * @return A value-sorted list of move entries at the given search depth, with the best move at the front,
+     *         or the given list if the search has been stopped.
+     */
+    List<MoveEntry> alphaBetaRootParallel(List<MoveEntry> oldMoveEntries, int depth, int alpha, int beta) {
+        List<MoveEntry> newMoveEntries = new ArrayList<>();
+        MoveEntry bestMoveEntry = oldMoveEntries.get(0);
+        MiniMax firstSearch = getRootMoveSearch(bestMoveEntry.move);
+        int bestVal = -firstSearch.alphaBeta(firstSearch.startBoard, depth - 1, 1, -beta, -alpha);
+        alpha = Math.max(alpha, bestVal);
+        newMoveEntries.add(new MoveEntry(bestMoveEntry.move, bestVal));
+
+        // the young brothers are all tested against the bound of the eldest
+        int testAlpha = alpha;
+        List<ForkJoinTask<Integer>> tests = new ArrayList<>();
+        for (int i = 1; i < oldMoveEntries.size(); i++) {
+            MiniMax search = getRootMoveSearch(oldMoveEntries.get(i).move);
+            tests.add(rootPool.submit(() -> -search.alphaBeta(search.startBoard, depth - 1, 1, -testAlpha - 1, -testAlpha)));
+        }
+
+        for (int i = 1; i < oldMoveEntries.size(); i++) {
+            Move move = oldMoveEntries.get(i).move;
+            MiniMax search = getRootMoveSearch(move);
+            int val = tests.get(i - 1).join();
+            if (isStopped()) { // every test is still joined, so that no root move search outlives this call
+                continue;
+            }
+            if (val > testAlpha && alpha > testAlpha) { // the bound has been raised since, test again
+                val = -search.alphaBeta(search.startBoard, depth - 1, 1, -alpha - 1, -alpha);
+            }
+            if (val > alpha && val < beta) { // research with full window
+                val = -search.alphaBeta(search.startBoard, depth - 1, 1, -beta, -alpha);
+            }
+            if (val > bestVal) {
+                bestVal = val;
+                bestMoveEntry = oldMoveEntries.get(i);
+                alpha = Math.max(alpha, val);
+            }
+            newMoveEntries.add(new MoveEntry(move, val));
+        }
+        if (isStopped()) {
+            return oldMoveEntries;
+        }
+
+        return sortMoveEntries(newMoveEntries, bestMoveEntry);
+    }
+
+    /**
+     * Returns the search of the given root move, which keeps its board and transposition table between iterations.
+     * The board copy is made by the calling thread, which owns the start board.
+     */
+    private MiniMax getRootMoveSearch(Move move) {
+        MiniMax search = rootMoveSearches.get(move);
+        if (search == null) {
+            Board board = startBoard.getCopy();
+            board.makeMove(move);
+            // a reused table starts empty, so that the result does not depend on earlier searches
+            TranspositionTable tTable = ROOT_MOVE_TABLES.poll();
+            if (tTable == null) {
+                tTable = new TranspositionTable(ROOT_MOVE_TT_MEGABYTES);
+            } else {
+                tTable.clear();
+            }
+            search = new RootMoveSearch(this, board, tTable);
+            rootMoveSearches.put(move, search);
+        }
+        return search;
+    }
+
     /**
      * The inner method of alpha-beta search.
      * @param board The current board.
      * @param depth The current depth.
+     * @param ply The distance from the root, used to pick the move list.
      * @param alpha The current lower bound.
      * @param beta The current upper bound.
-     * @param allowNull Whether a null move is allowed here.
      */
-    private int alphaBeta(Board board, int depth, int alpha, int beta, boolean allowNull) {
+    private int alphaBeta(Board board, int depth, int ply, int alpha, int beta) {
+        if (isStopped()) { // the result is discarded by every caller
+            return 0;
+        }
+        nodes++;
         int alphaOrig = alpha;
-        Move bestMove = null;
+        int bestMove = Move.NULL_MOVE;
+
+        // repeated position: draw, or a loss for the side making a perpetual check or chase
+        Board.Repetition repetition = board.getRepetition();
+        if (repetition != Board.Repetition.NONE) {
+            repetitions++;
+            if (repetition == Board.Repetition.DRAW) {
+                return 0;
+            }
+            int lossVal = -Math.abs(BoardEvaluator.getCheckmateValue(board.getCurrPlayer().getAlliance(), 0));
+            return repetition == Board.Repetition.LOSS ? lossVal : -lossVal;
+        }
+
+        // scores that depend on the path to a repetition are not stored, as another path may not repeat
+        int repetitionsBefore = repetitions;
 
         // look up transposition table
         long zobristKey = board.getZobristKey();
-        TTEntry ttEntry = tTable.getEntry(zobristKey);
-        if (ttEntry != null) {
-            bestMove = ttEntry.bestMove;
-            if (ttEntry.depth >= depth) {
-                switch (ttEntry.flag) {
+        long ttData = tTable.probe(zobristKey);
+        if (ttData != 0) {
+            // the stored move may come from a colliding position, so it is verified before it is played
+            int ttMove = TranspositionTable.getBestMove(ttData);
+            if (board.isLegalMove(ttMove)) {
+                bestMove = ttMove;
+            }
+            if (TranspositionTable.getDepth(ttData) >= depth) {
+                int ttVal = TranspositionTable.getVal(ttData);
+                switch (TranspositionTable.getFlag(ttData)) {
                     case EXACT:
-                        return ttEntry.val;
+                        return ttVal;
                     case LOWERBOUND:
-                        alpha = Math.max(alpha, ttEntry.val);
+                        alpha = Math.max(alpha, ttVal);
                         break;
                     case UPPERBOUND:
-                        beta = Math.min(beta, ttEntry.val);
+                        beta = Math.min(beta, ttVal);
                         break;
                 }
                 if (alpha >= beta) {
-                    return ttEntry.val;
+                    return ttVal;
                 }
             }
         }
@@ -141,21 +375,24 @@ abstract class MiniMax {
         // evaluate board
         int color = board.getCurrPlayer().getAlliance().isRed() ? 1 : -1;
         if (depth <= 0) {
-            int val = quiescence(board, -beta, -alpha);
-            if (ttEntry == null) {
-                tTable.storeEntry(new TTEntry(zobristKey, 0, val, Flag.EXACT, null));
+            int val = quiescence(board, ply, -beta, -alpha);
+            if (ttData == 0) {
+                tTable.store(zobristKey, 0, val, Flag.EXACT, Move.NULL_MOVE);
             }
             return val;
         }
-        if (board.isCurrPlayerCheckmated()) {
+        if (!board.hasLegalMove()) {
             return BoardEvaluator.getCheckmateValue(board.getCurrPlayer().getAlliance(), depth) * color;
         }
 
-        // null move pruning
-        if (allowNull && !board.getCurrPlayer().isInCheck()) {
-            board.changeTurn();
-            int val = -alphaBeta(board, depth - 1 - R, -beta, -beta + 1, false);
-            board.changeTurn();
+        // null move pruning, not twice in a row, in check or with too little material (zugzwang)
+        if (board.isNullMoveAllowed()) {
+            board.makeNullMove();
+            int val = -alphaBeta(board, depth - 1 - R - depth / R_DEPTH_DIVISOR, ply + 1, -beta, -beta + 1);
+            board.unmakeNullMove();
+            if (isStopped()) { // the value is made up, so it is neither used nor stored
+                return 0;
+            }
             if (val >= beta) {
                 return val;
             }
@@ -163,38 +400,47 @@ abstract class MiniMax {
 
         // search all moves
         int bestVal = NEG_INF;
-        boolean hasBestMove = bestMove != null;
+        boolean hasBestMove = bestMove != Move.NULL_MOVE;
         if (hasBestMove) { // search best move with full window
             board.makeMove(bestMove);
-            int val = -alphaBeta(board, depth - 1, -beta, -alpha, true);
+            int val = -alphaBeta(board, depth - 1, ply + 1, -beta, -alpha);
             board.unmakeMove(bestMove);
+            if (isStopped()) {
+                return 0;
+            }
             bestVal = val;
             alpha = Math.max(alpha, val);
             if (val >= beta) {
                 return val;
             }
         }
-        for (Move move : MoveSorter.simpleSort(board.getCurrPlayer().getLegalMoves())) {
-            if (move.equals(bestMove)) continue;
+        MoveList moves = moveLists[ply];
+        board.generateLegalMoves(moves); // evasions only when in check
+        MoveSorter.simpleSort(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (move == bestMove) continue;
 
             board.makeMove(move);
-            if (board.isStateAllowed()) {
-                int val;
-                if (hasBestMove) { // search remaining moves with null window
-                    val = -alphaBeta(board, depth - 1, -alpha - 1, -alpha, true);
-                    if (val > alpha && val < beta) { // research with full window
-                        val = -alphaBeta(board, depth - 1, -beta, -alpha, true);
-                    }
-                } else {
-                    val = -alphaBeta(board, depth - 1, -beta, -alpha, true);
+            int val;
+            if (hasBestMove) { // search remaining moves with null window
+                val = -alphaBeta(board, depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (val > alpha && val < beta) { // research with full window
+                    val = -alphaBeta(board, depth - 1, ply + 1, -beta, -alpha);
                 }
-                if (val > bestVal) {
-                    bestVal = val;
-                    if (val > alphaOrig) {
-                        bestMove = move;
-                    }
-                    alpha = Math.max(alpha, val);
+            } else {
+                val = -alphaBeta(board, depth - 1, ply + 1, -beta, -alpha);
+            }
+            if (isStopped()) {
+                board.unmakeMove(move);
+                return 0;
+            }
+            if (val > bestVal) {
+                bestVal = val;
+                if (val > alphaOrig) {
+                    bestMove = move;
                 }
+                alpha = Math.max(alpha, val);
             }
             board.unmakeMove(move);
 
@@ -203,18 +449,20 @@ abstract class MiniMax {
             }
         }
 
-        // store into transposition table
-        if (ttEntry == null || depth > ttEntry.depth) {
-            Flag flag;
-            if (bestVal <= alphaOrig) {
-                flag = Flag.UPPERBOUND;
-            } else if (bestVal >= beta) {
-                flag = Flag.LOWERBOUND;
-            } else {
-                flag = Flag.EXACT;
-            }
-            tTable.storeEntry(new TTEntry(zobristKey, depth, bestVal, flag, bestMove));
+        if (repetitions != repetitionsBefore) {
+            return bestVal;
+        }
+
+        // store into transposition table, which keeps deeper results of the same position
+        Flag flag;
+        if (bestVal <= alphaOrig) {
+            flag = Flag.UPPERBOUND;
+        } else if (bestVal >= beta) {
+            flag = Flag.LOWERBOUND;
+        } else {
+            flag = Flag.EXACT;
         }
+        tTable.store(zobristKey, depth, bestVal, flag, bestMove);
 
         return bestVal;
     }
@@ -222,24 +470,26 @@ abstract class MiniMax {
     /**
      * The quiescence call when depth reaches 0.
      */
-    private int quiescence(Board board, int alpha, int beta) {
+    private int quiescence(Board board, int ply, int alpha, int beta) {
+        nodes++;
         int color = board.getCurrPlayer().getAlliance().isRed() ? 1 : -1;
-        int bestVal = BoardEvaluator.evaluate(board) * color; // "stand-pat"
+        int bestVal = BoardEvaluator.evaluate(board, randomised) * color; // "stand-pat"
         alpha = Math.max(alpha, bestVal);
-        if (alpha >= beta || board.isQuiet()) {
+        if (alpha >= beta || ply >= MAX_PLY) {
             return bestVal;
         }
 
-        for (Move move : MoveSorter.simpleSort(board.getCurrPlayer().getLegalMoves())) {
-            if (!move.isCapture()) break; // capture moves are at the front
+        MoveList moves = moveLists[ply];
+        board.generateLegalCaptures(moves); // MVV-LVA scored
+        moves.sort();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
 
             board.makeMove(move);
-            if (board.isStateAllowed()) {
-                int val = -quiescence(board, -beta, -alpha);
-                if (val > bestVal) {
-                    bestVal = val;
-                    alpha = Math.max(alpha, val);
-                }
+            int val = -quiescence(board, ply + 1, -beta, -alpha);
+            if (val > bestVal) {
+                bestVal = val;
+                alpha = Math.max(alpha, val);
             }
             board.unmakeMove(move);
 
@@ -252,73 +502,47 @@ abstract class MiniMax {
     }
 
     /**
-     * Represents a transposition table (TT).
+     * Represents a Lazy SMP helper, which deepens its own search until stopped. Odd helpers start one ply deeper
+     * than even ones so that the threads do not all search the same depth at the same time.
      */
-    private static class TTable {
+    private static class Helper extends MiniMax {
 
-        private final TTEntry[] arr;
+        private final int index;
 
-        private TTable() {
-            arr = new TTEntry[TT_SIZE];
+        private Helper(MiniMax main, Board board, int index) {
+            super(main, board, main.legalMoves, main.R, 1, main.randomised, main.tTable);
+            this.index = index;
         }
 
         /**
-         * Returns a TT entry given the Zobrist key.
+         * Searches until stopped; the results only fill the shared transposition table.
          */
-        private TTEntry getEntry(long zobristKey) {
-            int index = (int) Math.abs(zobristKey % TT_SIZE);
-            TTEntry entry = arr[index];
-            if (entry != null && entry.zobristKey == zobristKey) {
-                return entry;
-            } else {
-                return null;
+        private void run() {
+            List<MoveEntry> moveEntries = getLegalMoveEntries();
+            for (int depth = 1 + index % 2; depth <= MAX_HELPER_DEPTH && !isStopped(); depth++) {
+                moveEntries = alphaBetaRoot(moveEntries, depth, NEG_INF, POS_INF);
             }
         }
-
-        /**
-         * Stores the given entry into this TT.
-         */
-        private void storeEntry(TTEntry entry) {
-            if (entry == null) return;
-            int index = (int) Math.abs(entry.zobristKey % TT_SIZE);
-            arr[index] = entry;
-        }
     }
 
     /**
-     * Represents an entry in the TT.
+     * Represents the search of a single root move in the deterministic parallel mode, on a board the move has
+     * been made on and with its own transposition table. It is driven by {@link #alphaBetaRootParallel}.
      */
-    private static class TTEntry {
-
-        private final long zobristKey;
-        private final int depth;
-        private final int val;
-        private final Flag flag;
-        private final Move bestMove;
+    private static class RootMoveSearch extends MiniMax {
 
-        private TTEntry(long zobristKey, int depth, int val, Flag flag, Move bestMove) {
-            this.zobristKey = zobristKey;
-            this.depth = depth;
-            this.val = val;
-            this.flag = flag;
-            this.bestMove = bestMove;
+        private RootMoveSearch(MiniMax main, Board board, TranspositionTable tTable) {
+            super(main, board, Collections.emptyList(), main.R, 1, main.randomised, tTable);
         }
     }
 
-    /**
-     * Represents the relationship of value with alpha/beta.
-     */
-    private enum Flag {
-        EXACT,
-        LOWERBOUND,
-        UPPERBOUND
-    }
-
     /**
      * A helper class for sorting moves to aid alpha-beta pruning.
      */
     static class MoveSorter {
 
+        private static final int CAPTURE_OFFSET = 1 << 20; // puts every capture before every non-capture
+
         private static final Comparator<Move> MOVE_COMPARATOR = (m1, m2) -> {
             int cpValue1 = m1.isCapture()
                     ? m1.getCapturedPiece().get().getMidgameValue() : 0;
@@ -345,6 +569,29 @@ abstract class MiniMax {
             return MOVE_COMPARATOR.compare(e1.move, e2.move);
         };
 
+        /**
+         * Sorts the given list of encoded moves in place, in the same order as {@link #MOVE_COMPARATOR}.
+         */
+        static void simpleSort(MoveList moves) {
+            for (int i = 0; i < moves.size(); i++) {
+                moves.setScore(i, getScore(moves.get(i)));
+            }
+            moves.sort();
+        }
+
+        /**
+         * Returns the sort key of the given encoded move: captures first by capture profit, then the rest by move priority.
+         */
+        private static int getScore(int move) {
+            int cpValue = Move.isCapture(move)
+                    ? Piece.getMidgameValue(Move.getCapturedCode(move), Move.getDestSquare(move)) : 0;
+            if (cpValue == 0) {
+                return Piece.codeToPieceType(Move.getMovedCode(move)).getMovePriority();
+            }
+            int pValue = Piece.getMidgameValue(Move.getMovedCode(move), Move.getSrcSquare(move));
+            return pValue - cpValue - CAPTURE_OFFSET;
+        }
+
         /**
          * Sorts the given collection of moves in the default way.
          */
@@ -0,0 +1,108 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A headless entry point that measures how the fixed-depth search scales with threads.
+ * <p>
+ * For every thread count from 1 to N it searches each position to the given depth and reports the time to depth,
+ * the nodes per second and both relative to a single thread. Single-threaded passes run first to warm up the JIT.
+ * Every search starts from an empty transposition table, and reports how full it has become.
+ * <p>
+ * Usage: {@code SearchBenchmark [-threads n] [-depth d] [-hash MB] [-deterministic] [FEN...]}, where
+ * {@code -deterministic} measures the deterministic parallel search instead of Lazy SMP
+ */
+public class SearchBenchmark {
+
+    private static final String[] DEFAULT_FENS = {
+            "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1",
+            "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w - - 0 1",
+            "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w - - 0 1",
+    };
+    private static final int WARMUP_PASSES = 2;
+
+    /**
+     * Searches the given positions with 1 to the given number of threads and prints the scaling.
+     * @param fens The positions in FEN.
+     * @param depth The search depth.
+     * @param maxThreads The largest number of threads.
+     * @param deterministic Whether to use the deterministic parallel search.
+     * @param hashMegabytes The size of the transposition table in megabytes.
+     * @param out The output.
+     */
+    public static void run(List<String> fens, int depth, int maxThreads, boolean deterministic, int hashMegabytes,
+                           PrintStream out) {
+        TranspositionTable tTable = new TranspositionTable(hashMegabytes);
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            for (String fen : fens) {
+                Board board = Board.fromFen(fen);
+                tTable.clear();
+                new FixedDepthSearch(board, board.getCurrPlayerLegalMoves(), depth, 1, deterministic, false, tTable).search();
+            }
+        }
+
+        long baseMillis = 0;
+        long baseNodes = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            long millis = 0;
+            long nodes = 0;
+            for (String fen : fens) {
+                Board board = Board.fromFen(fen);
+                tTable.clear();
+                long start = System.nanoTime();
+                FixedDepthSearch search = new FixedDepthSearch(board, board.getCurrPlayerLegalMoves(), depth, threads,
+                        deterministic, false, tTable);
+                Move bestMove = search.search();
+                millis += (System.nanoTime() - start) / 1000000;
+                nodes += search.getNodeCount();
+                out.println("threads " + threads + " | " + bestMove + " " + search.getBestVal()
+                        + " | hash " + tTable.getUsage() + " permille | " + fen);
+            }
+            millis = Math.max(millis, 1);
+            if (threads == 1) {
+                baseMillis = millis;
+                baseNodes = nodes;
+            }
+            long nps = nodes * 1000 / millis;
+            out.printf("threads %d: %d ms, %d nodes, %d nps, time-to-depth speedup %.2f, nps speedup %.2f%n",
+                    threads, millis, nodes, nps, (double) baseMillis / millis, (double) nps / (baseNodes * 1000 / baseMillis));
+        }
+    }
+
+    public static void main(String[] args) {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int depth = 5;
+        int hashMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
+        boolean deterministic = false;
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads":
+                    maxThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "-deterministic":
+                    deterministic = true;
+                    break;
+                default:
+                    fens.add(args[i]);
+                    break;
+            }
+        }
+        if (fens.isEmpty()) {
+            fens.addAll(Arrays.asList(DEFAULT_FENS));
+        }
+        run(fens, depth, maxThreads, deterministic, hashMegabytes, System.out);
+    }
+}
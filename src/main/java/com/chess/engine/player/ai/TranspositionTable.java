@@ -0,0 +1,225 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Move;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Represents a transposition table (TT) of packed entries that can be shared by threads without locks.
+ * <p>
+ * Each entry is a pair of longs: the Zobrist key XOR the data, and the data itself (encoded move, bound flag,
+ * depth, generation and value). A torn entry written concurrently by another thread fails the XOR check and
+ * reads as a miss. Entries are grouped in buckets of {@link #BUCKET_SIZE} that fill one cache line; a store
+ * replaces the entry of the same position, or else the shallowest entry, counting older generations as shallower.
+ * <p>
+ * The entries live off the Java heap, in direct buffers of at most 1 GB each, so that a table of several
+ * gigabytes adds nothing to the heap the garbage collector has to size and scan. The size is a power of two
+ * megabytes and a bucket is picked by masking the key.
+ * <p>
+ * A table can be kept for a whole game and passed to every search, so that each move starts from the results of
+ * the previous searches; it should be cleared when the game restarts from an unrelated position. It must not be
+ * cleared or resized while a search is using it.
+ */
+public class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 16;
+    public static final int MAX_MEGABYTES = 1 << 16; // 64 GB
+    static final int BUCKET_SIZE = 4; // entries per bucket (64 bytes)
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_SHIFT = 6; // log2 of the bytes per bucket
+    private static final int SEGMENT_BUCKET_BITS = 24; // buckets per buffer: 1 GB, as a buffer holds less than 2 GB
+    private static final int SEGMENT_BUCKET_MASK = (1 << SEGMENT_BUCKET_BITS) - 1;
+    private static final int CLEAR_CHUNK_BYTES = 1 << 16;
+    private static final int AGE_WEIGHT = 4; // depth an entry loses per generation of age
+    private static final int USAGE_SAMPLE_BUCKETS = 250; // buckets sampled for the usage estimate
+
+    // data layout, from the lowest bit
+    private static final int MOVE_BITS = 24;
+    private static final int FLAG_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = FLAG_SHIFT + 2;
+    private static final int GENERATION_SHIFT = DEPTH_SHIFT + 8;
+    private static final int VAL_SHIFT = GENERATION_SHIFT + 8; // the value takes the remaining 22 bits, signed
+    private static final int MAX_DEPTH = 0xff;
+    private static final int MAX_VAL = (1 << (Long.SIZE - VAL_SHIFT - 1)) - 1;
+    private static final Flag[] FLAGS = Flag.values();
+
+    private ByteBuffer[] segments; // the buckets, 2^SEGMENT_BUCKET_BITS per buffer except in a smaller table
+    private int bucketMask;
+    private int megabytes;
+    private int generation;
+
+    /**
+     * Creates an empty table of the default size.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Creates an empty table.
+     * @param megabytes The size in megabytes, rounded down to a power of two from 1 to {@link #MAX_MEGABYTES}.
+     */
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /**
+     * Replaces the table by an empty one of the given size, unless it already has that size.
+     * The old memory is released when the garbage collector reclaims its buffers.
+     * @param megabytes The size in megabytes, rounded down to a power of two from 1 to {@link #MAX_MEGABYTES}.
+     * @throws OutOfMemoryError If the direct memory cannot be allocated; the table is then left unchanged.
+     */
+    public void resize(int megabytes) {
+        int size = Integer.highestOneBit(Math.max(1, Math.min(MAX_MEGABYTES, megabytes)));
+        if (size == this.megabytes) {
+            return;
+        }
+
+        int buckets = size << (20 - BUCKET_SHIFT);
+        int segmentBuckets = Math.min(buckets, 1 << SEGMENT_BUCKET_BITS);
+        ByteBuffer[] newSegments = new ByteBuffer[buckets / segmentBuckets];
+        for (int i = 0; i < newSegments.length; i++) {
+            newSegments[i] = ByteBuffer.allocateDirect(segmentBuckets << BUCKET_SHIFT).order(ByteOrder.nativeOrder());
+        }
+        segments = newSegments;
+        bucketMask = buckets - 1;
+        this.megabytes = size;
+        generation = 0;
+    }
+
+    /**
+     * Returns the size of the table in megabytes.
+     * @return The size in megabytes.
+     */
+    public int getMegabytes() {
+        return megabytes;
+    }
+
+    /**
+     * Removes all entries, for a new game or a loaded position.
+     */
+    public void clear() {
+        byte[] zeros = new byte[Math.min(CLEAR_CHUNK_BYTES, segments[0].capacity())];
+        for (ByteBuffer segment : segments) {
+            ByteBuffer buffer = segment.duplicate(); // leaves the position of the shared buffer alone
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+            }
+        }
+        generation = 0;
+    }
+
+    /**
+     * Starts a new search: entries stored by earlier searches age by one generation.
+     */
+    void incrementGeneration() {
+        generation = (generation + 1) & 0xff;
+    }
+
+    /**
+     * Returns the data stored for the given Zobrist key, or 0 if there is none.
+     */
+    long probe(long zobristKey) {
+        int bucket = getBucket(zobristKey);
+        ByteBuffer segment = segments[bucket >>> SEGMENT_BUCKET_BITS];
+        int offset = (bucket & SEGMENT_BUCKET_MASK) << BUCKET_SHIFT;
+        for (int i = 0; i < BUCKET_SIZE; i++, offset += ENTRY_BYTES) {
+            long data = segment.getLong(offset + Long.BYTES);
+            if ((segment.getLong(offset) ^ data) == zobristKey && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result for the given Zobrist key.
+     * A shallower result for a position already stored in the current generation only replaces an inexact one.
+     */
+    void store(long zobristKey, int depth, int val, Flag flag, int bestMove) {
+        int bucket = getBucket(zobristKey);
+        ByteBuffer segment = segments[bucket >>> SEGMENT_BUCKET_BITS];
+        int offset = (bucket & SEGMENT_BUCKET_MASK) << BUCKET_SHIFT;
+        int replaceOffset = offset;
+        int replaceScore = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_SIZE; i++, offset += ENTRY_BYTES) {
+            long data = segment.getLong(offset + Long.BYTES);
+            if ((segment.getLong(offset) ^ data) == zobristKey && data != 0) {
+                if (depth < getDepth(data) && getGeneration(data) == generation
+                        && (flag != Flag.EXACT || getFlag(data) == Flag.EXACT)) {
+                    return;
+                }
+                if (bestMove == Move.NULL_MOVE) { // keep the known best move
+                    bestMove = getBestMove(data);
+                }
+                replaceOffset = offset;
+                break;
+            }
+
+            int score = data == 0 ? Integer.MIN_VALUE
+                    : getDepth(data) - AGE_WEIGHT * ((generation - getGeneration(data)) & 0xff);
+            if (score < replaceScore) {
+                replaceScore = score;
+                replaceOffset = offset;
+            }
+        }
+
+        long data = (long) Math.max(-MAX_VAL, Math.min(MAX_VAL, val)) << VAL_SHIFT
+                | (long) generation << GENERATION_SHIFT
+                | (long) Math.max(0, Math.min(MAX_DEPTH, depth)) << DEPTH_SHIFT
+                | (long) (flag.ordinal() + 1) << FLAG_SHIFT
+                | bestMove;
+        segment.putLong(replaceOffset, zobristKey ^ data);
+        segment.putLong(replaceOffset + Long.BYTES, data);
+    }
+
+    /**
+     * Returns the permille of sampled entries written in the current generation.
+     */
+    int getUsage() {
+        int sampled = Math.min(USAGE_SAMPLE_BUCKETS, bucketMask + 1) * BUCKET_SIZE;
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = segments[0].getLong(i * ENTRY_BYTES + Long.BYTES);
+            if (data != 0 && getGeneration(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    private int getBucket(long zobristKey) {
+        return (int) (zobristKey ^ zobristKey >>> 32) & bucketMask;
+    }
+
+    static int getBestMove(long data) {
+        return (int) data & ((1 << MOVE_BITS) - 1);
+    }
+
+    static Flag getFlag(long data) {
+        return FLAGS[((int) (data >>> FLAG_SHIFT) & 3) - 1];
+    }
+
+    static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    static int getVal(long data) {
+        return (int) (data >> VAL_SHIFT);
+    }
+
+    private static int getGeneration(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xff;
+    }
+
+    /**
+     * Represents the relationship of value with alpha/beta.
+     */
+    enum Flag {
+        EXACT,
+        LOWERBOUND,
+        UPPERBOUND
+    }
+}
@@ -1,7 +1,10 @@
 package com.chess.gui;
 
 import com.chess.engine.Alliance;
+import com.chess.engine.player.ai.TranspositionTable;
 import com.chess.gui.Table.PlayerType;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
@@ -49,6 +52,21 @@ class GameSetup extends Dialog {
      * 最大时间
      */
     private static final int MAX_TIME = 180;
+    /**
+     * 最大检索线程数
+     */
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * 可选的置换表大小（MB），2的幂
+     */
+    private static final ObservableList<Integer> HASH_SIZES = FXCollections.observableArrayList();
+
+    static {
+        for (int size = 1; size <= TranspositionTable.MAX_MEGABYTES; size *= 2) {
+            HASH_SIZES.add(size);
+        }
+    }
+
     /**
      * 游戏设置实例
      */
@@ -74,6 +92,14 @@ class GameSetup extends Dialog {
      * 检索时间
      */
     private int searchTime;
+    /**
+     * 检索线程数，大于1时使用多线程检索（Lazy SMP）
+     */
+    private int searchThreads;
+    /**
+     * 置换表大小（MB）
+     */
+    private int hashMegabytes;
     /**
      * 当前AI的移动是否是随机的，true，随机，否则，false
      */
@@ -86,6 +112,8 @@ class GameSetup extends Dialog {
         aiType = AIType.DEPTH;
         searchDepth = 5;
         searchTime = 10;
+        searchThreads = 1;
+        hashMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
         isAIRandomised = false;
 
         // 对话框面板
@@ -125,6 +153,14 @@ class GameSetup extends Dialog {
         Spinner searchTimeSpinner = new Spinner(MIN_TIME, MAX_TIME, searchTime, 10);
         searchTimeSpinner.setEditable(true);
 
+        Label searchThreadsLabel = new Label("线程数");
+        Spinner searchThreadsSpinner = new Spinner(1, MAX_THREADS, searchThreads, 1);
+        searchThreadsSpinner.setEditable(true);
+
+        Label hashLabel = new Label("置换表(MB)");
+        Spinner<Integer> hashSpinner = new Spinner<>(HASH_SIZES);
+        hashSpinner.getValueFactory().setValue(hashMegabytes);
+
         CheckBox randomiseAICheckbox = new CheckBox("AI的移动是否随机");
         randomiseAICheckbox.setAllowIndeterminate(false);
         randomiseAICheckbox.setSelected(isAIRandomised);
@@ -151,6 +187,8 @@ class GameSetup extends Dialog {
             }
             searchDepthSpinner.getEditor().textProperty().set(Integer.toString(searchDepth));
             searchTimeSpinner.getEditor().textProperty().set(Integer.toString(searchTime));
+            searchThreadsSpinner.getEditor().textProperty().set(Integer.toString(searchThreads));
+            hashSpinner.getValueFactory().setValue(hashMegabytes);
             randomiseAICheckbox.setSelected(isAIRandomised);
         });
         Button okButton = (Button) dialogPane.lookupButton(ok);
@@ -176,6 +214,16 @@ class GameSetup extends Dialog {
                 alert.showAndWait();
                 searchTimeSpinner.getEditor().textProperty().set(Integer.toString(searchTime));
             }
+            try {
+                Integer.parseInt(searchThreadsSpinner.getEditor().textProperty().get());
+                searchThreads = (int) searchThreadsSpinner.getValue();
+            } catch (NumberFormatException nfe) {
+                Alert alert = new Alert(AlertType.ERROR, "Threads must be an integer from 1 to " + MAX_THREADS);
+                alert.setTitle("设置");
+                alert.showAndWait();
+                searchThreadsSpinner.getEditor().textProperty().set(Integer.toString(searchThreads));
+            }
+            hashMegabytes = hashSpinner.getValue();
             isAIRandomised = randomiseAICheckbox.isSelected();
 
             hide();
@@ -193,6 +241,10 @@ class GameSetup extends Dialog {
         nodes.add(searchDepthSpinner);
         nodes.add(fixedTimeAIButton);
         nodes.add(searchTimeSpinner);
+        nodes.add(searchThreadsLabel);
+        nodes.add(searchThreadsSpinner);
+        nodes.add(hashLabel);
+        nodes.add(hashSpinner);
         nodes.add(randomiseAICheckbox);
 
         for (int i = 0; i < nodes.size(); i++) {
@@ -234,4 +286,21 @@ class GameSetup extends Dialog {
     int getSearchTime() {
         return searchTime;
     }
+
+    int getSearchThreads() {
+        return searchThreads;
+    }
+
+    int getHashMegabytes() {
+        return hashMegabytes;
+    }
+
+    /**
+     * 分配内存失败时恢复置换表大小
+     *
+     * @param hashMegabytes 置换表实际的大小（MB）
+     */
+    void setHashMegabytes(int hashMegabytes) {
+        this.hashMegabytes = hashMegabytes;
+    }
 }
@@ -3,12 +3,14 @@ package com.chess.gui;
 import com.chess.CChess;
 import com.chess.engine.LoadGameUtil;
 import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtil;
 import com.chess.engine.board.Coordinate;
 import com.chess.engine.board.Move;
 import com.chess.engine.board.Point;
 import com.chess.engine.pieces.Piece;
 import com.chess.engine.player.ai.FixedDepthSearch;
 import com.chess.engine.player.ai.FixedTimeSearch;
+import com.chess.engine.player.ai.TranspositionTable;
 import com.chess.engine.player.ai.MoveBook;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
@@ -116,6 +118,10 @@ public class Table extends BorderPane {
      * 属性变更支持
      */
     private final PropertyChangeSupport propertyChangeSupport;
+    /**
+     * AI搜索共用的置换表，保留整局游戏的搜索结果
+     */
+    private final TranspositionTable transpositionTable;
     /**
      * 中国象棋棋盘
      */
@@ -164,6 +170,7 @@ public class Table extends BorderPane {
         aiObserver = new AIObserver();
         propertyChangeSupport = new PropertyChangeSupport(this);
         propertyChangeSupport.addPropertyChangeListener(aiObserver);
+        transpositionTable = new TranspositionTable(gameSetup.getHashMegabytes());
         bannedMoves = new ArrayList<>();
         highlightLegalMoves = true;
 
@@ -332,6 +339,7 @@ public class Table extends BorderPane {
             clearSelections();
             aiObserver.stopAI();
             gameSetup.showAndWait();
+            resizeTranspositionTable();
             if (partialMovelog != null) {
                 infoPane.update(board, partialMovelog);
             } else {
@@ -345,6 +353,18 @@ public class Table extends BorderPane {
         return optionsMenu;
     }
 
+    /**
+     * 按游戏设置调整置换表的大小，内存不足时保留原来的置换表
+     */
+    private void resizeTranspositionTable() {
+        try {
+            transpositionTable.resize(gameSetup.getHashMegabytes());
+        } catch (OutOfMemoryError e) {
+            gameSetup.setHashMegabytes(transpositionTable.getMegabytes());
+            showAlert(AlertType.ERROR, "设置", "内存不足，置换表保留为" + transpositionTable.getMegabytes() + "MB");
+        }
+    }
+
     /**
      * Creates and returns a preferences menu for the menu bar.
      */
@@ -396,6 +416,7 @@ public class Table extends BorderPane {
         board = Board.initialiseBoard();
         fullMovelog.clear();
         bannedMoves.clear();
+        transpositionTable.clear();
 
         boardPane.drawBoard(board);
         moveHistoryPane.update(fullMovelog);
@@ -448,6 +469,7 @@ public class Table extends BorderPane {
 
                 // 初始化棋盘
                 board = lgu.getBoard();
+                transpositionTable.clear();
 
                 // 清空所有历史移动日志，添加新的移动日志
                 fullMovelog.clear();
@@ -563,15 +585,6 @@ public class Table extends BorderPane {
         propertyChangeSupport.firePropertyChange(propertyName, null, null);
     }
 
-    /**
-     * 检查当前AI的移动是否是随机的
-     *
-     * @return 如果当前AI的移动是随机的，则为true，否则为false.
-     */
-    public boolean isAIRandomised() {
-        return gameSetup.isAIRandomised();
-    }
-
     /**
      * 清除所有鼠标选择
      */
@@ -737,7 +750,7 @@ public class Table extends BorderPane {
             // 添加子组件
             for (int row = 0; row < Board.NUM_ROWS; row++) {
                 for (int col = 0; col < Board.NUM_COLS; col++) {
-                    PointPane pointPane = new PointPane(new Coordinate(row, col));
+                    PointPane pointPane = new PointPane(Coordinate.of(row, col));
                     // 添加点面板
                     pointPanes.add(pointPane);
                     super.add(pointPane, col, row);
@@ -975,40 +988,17 @@ public class Table extends BorderPane {
          * @param board 当前棋盘.
          */
         private void highlightPossibleMoves(Board board) {
-            // 不高亮显示移动路径，跳过
-            if (!highlightLegalMoves) {
+            // 不高亮显示移动路径或者没有选中棋子，跳过
+            if (!highlightLegalMoves || selectedPiece == null) {
                 return;
             }
-            // 遍历所选棋子所有可以采取的合法走法
-            for (Move move : pieceLegalMoves(board)) {
-                // 检查自杀行为
-                board.makeMove(move);
-                if (!board.isStateAllowed()) {
-                    // 撤销移动
-                    board.unmakeMove(move);
-                    continue;
-                }
-                // 撤销移动
-                board.unmakeMove(move);
-
-                // 合法且非自杀性的落点,使用圆点高亮显示
-                if (move.getDestPosition().equals(position)) {
-                    Label label = new Label();
-                    label.setGraphic(new ImageView(HIGHLIGHT_LEGALS_IMAGE));
-                    getChildren().add(label);
-                }
+            // 合法且非自杀性的落点,使用圆点高亮显示
+            if (board.isLegalMove(selectedPiece.getSquare(), BoardUtil.positionToSquare(position))) {
+                Label label = new Label();
+                label.setGraphic(new ImageView(HIGHLIGHT_LEGALS_IMAGE));
+                getChildren().add(label);
             }
         }
-
-        /**
-         * 返回符合所选棋子在给定棋盘上可以采取的合法走法的集合
-         *
-         * @param board 当前棋盘
-         * @return 符合所选棋子在给定棋盘上可以采取的合法走法的集合
-         */
-        private Collection<Move> pieceLegalMoves(Board board) {
-            return selectedPiece != null ? selectedPiece.getLegalMoves(board) : Collections.emptyList();
-        }
     }
 
     /**
@@ -1039,9 +1029,7 @@ public class Table extends BorderPane {
 
                 AIPlayer aiPlayer = getInstance().gameSetup.isAITimeLimited() ? new FixedTimeAIPlayer() : new FixedDepthAIPlayer();
                 aiPlayers.push(aiPlayer);
-                Thread th = new Thread(aiPlayer);
-                th.setDaemon(true);
-                th.start();
+                aiPlayer.start();
             }
         }
 
@@ -1091,60 +1079,42 @@ public class Table extends BorderPane {
      */
     private static abstract class AIPlayer extends Task<Move> {
 
-        private static final int MAX_CONSEC_CHECKS = 3;
-
+        /**
+         * 棋盘的副本，必须在拥有棋盘的JavaFX线程中（即构造时）复制，不能在AI线程中复制
+         */
+        final Board board;
         final Collection<Move> legalMoves;
         final Timer timer;
         TimerTask task;
+        /**
+         * 运行AI的线程
+         */
+        private Thread thread;
 
         private AIPlayer() {
             timer = new Timer("AI Timer");
-            legalMoves = new ArrayList<>(getInstance().board.getCurrPlayer().getLegalMoves());
-
-            Piece bannedPiece = getBannedCheckingPiece();
-            Collection<Move> bannedMoves = new ArrayList<>();
-            if (bannedPiece != null) {
-                Board board = getInstance().board.getCopy();
-                for (Move move : legalMoves) {
-                    board.makeMove(move);
-                    if (move.getMovedPiece().equals(bannedPiece) && !move.isCapture() && board.getCurrPlayer().isInCheck()) {
-                        bannedMoves.add(move);
-                    }
-                    board.unmakeMove(move);
-                }
-            }
+            board = getInstance().board.getCopy();
+            legalMoves = new ArrayList<>(getInstance().board.getCurrPlayerLegalMoves());
 
-            legalMoves.removeAll(bannedMoves);
             legalMoves.removeAll(getInstance().bannedMoves);
         }
 
         /**
-         * Returns the piece not to check the opponent with, if any.
+         * 在新的守护线程中运行AI
          */
-        private Piece getBannedCheckingPiece() {
-            if (!getInstance().board.lastThreeChecks()) {
-                return null;
-            }
-
-            List<Move> moveHistory = getInstance().fullMovelog.getMoves();
-            Move move = moveHistory.get(moveHistory.size() - MAX_CONSEC_CHECKS * 2);
-            if (move.isCapture()) {
-                return null;
-            }
-            Piece movedPiece = move.getMovedPiece().movePiece(move);
-            for (int i = 1; i < MAX_CONSEC_CHECKS; i++) {
-                move = moveHistory.get(moveHistory.size() - MAX_CONSEC_CHECKS * 2 + i * 2);
-                if (!move.getMovedPiece().equals(movedPiece) || move.isCapture()) {
-                    return null;
-                }
-                movedPiece = move.getMovedPiece().movePiece(move);
-            }
-
-            return movedPiece;
+        private void start() {
+            thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
         }
 
         /**
-         * 暂停且取消全部AI玩家及其计时器任务
+         * 通知搜索停止，可以在任何线程中调用
+         */
+        abstract void stopSearch();
+
+        /**
+         * 暂停且取消全部AI玩家及其计时器任务，并等待AI线程结束，之后才可以清空或调整置换表
          */
         private void stop() {
             // 取消任务
@@ -1153,6 +1123,12 @@ public class Table extends BorderPane {
             }
             // 标记为可以停止运行
             cancel(true);
+            stopSearch();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -1161,10 +1137,18 @@ public class Table extends BorderPane {
      */
     private static class FixedDepthAIPlayer extends AIPlayer {
 
+        private final int searchDepth;
+        private final FixedDepthSearch search;
         private Move bestMove;
-        private int searchDepth;
         private long startTime;
 
+        private FixedDepthAIPlayer() {
+            searchDepth = getInstance().gameSetup.getSearchDepth();
+            search = new FixedDepthSearch(board, legalMoves, searchDepth,
+                    getInstance().gameSetup.getSearchThreads(), false, getInstance().gameSetup.isAIRandomised(),
+                    getInstance().transpositionTable);
+        }
+
         @Override
         public void done() {
             if (isCancelled()) {
@@ -1185,8 +1169,12 @@ public class Table extends BorderPane {
             task = getTimerTask();
             timer.schedule(task, AIObserver.MIN_TIME);
             startTime = System.currentTimeMillis();
-            searchDepth = getInstance().gameSetup.getSearchDepth();
-            return new FixedDepthSearch(getInstance().board.getCopy(), legalMoves, searchDepth).search();
+            return search.search();
+        }
+
+        @Override
+        void stopSearch() {
+            search.stop();
         }
 
         /**
@@ -1217,16 +1205,28 @@ public class Table extends BorderPane {
      */
     public static class FixedTimeAIPlayer extends AIPlayer implements PropertyChangeListener {
 
+        private final int searchTime;
+        private final FixedTimeSearch search;
         private Move currBestMove;
         private int currDepth;
-        private int searchTime;
+
+        private FixedTimeAIPlayer() {
+            searchTime = getInstance().gameSetup.getSearchTime();
+            search = new FixedTimeSearch(board, legalMoves, this, System.currentTimeMillis() + searchTime * 1000,
+                    getInstance().gameSetup.getSearchThreads(), getInstance().gameSetup.isAIRandomised(),
+                    getInstance().transpositionTable);
+        }
 
         @Override
         protected Move call() {
             task = getTimerTask();
-            searchTime = getInstance().gameSetup.getSearchTime();
             timer.schedule(task, searchTime * 1000);
-            return new FixedTimeSearch(getInstance().board.getCopy(), legalMoves, this, System.currentTimeMillis() + searchTime * 1000).search();
+            return search.search();
+        }
+
+        @Override
+        void stopSearch() {
+            search.stop();
         }
 
         @Override
@@ -1245,6 +1245,7 @@ public class Table extends BorderPane {
                     Platform.runLater(() -> AIObserver.makeMove(currBestMove));
                     System.out.println(currBestMove.toString() + " | " + searchTime + "s | " + "depth " + currDepth);
                     FixedTimeAIPlayer.this.cancel(true);
+                    stopSearch();
                 }
             };
         }
@@ -0,0 +1,61 @@
+package com.chess.engine.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.fail;
+
+/**
+ * 检查增量更新的攻击表与重新生成的结果一致：遍历{@link Perft}内置局面的走法树，每走一步和每撤销一步都比较
+ */
+public class AttackMapTest {
+
+    private static final int DEPTH = 3;
+
+    @Test
+    public void incrementalUpdateMatchesRecomputation() {
+        for (String fen : Perft.REFERENCE_FENS) {
+            Board board = Board.fromFen(fen);
+            assertConsistent(board, "initial");
+            walk(board, DEPTH);
+        }
+    }
+
+    @Test
+    public void copyMatchesRecomputation() {
+        for (String fen : Perft.REFERENCE_FENS) {
+            Board board = Board.fromFen(fen);
+            MoveList moves = new MoveList();
+            board.generateLegalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                board.makeMove(moves.get(i));
+                assertConsistent(board.getCopy(), "copy");
+                board.unmakeMove(moves.get(i));
+            }
+        }
+    }
+
+    /**
+     * 遍历给定深度的全部合法走法，走子和撤销后都检查攻击表
+     */
+    private static void walk(Board board, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            assertConsistent(board, "after move");
+            walk(board, depth - 1);
+            board.unmakeMove(move);
+            assertConsistent(board, "after undo");
+        }
+    }
+
+    private static void assertConsistent(Board board, String when) {
+        if (!board.getAttackMap().isConsistent()) {
+            fail("Attack map differs from recomputation " + when + ": " + board.toFen());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.chess.engine.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Board#fromFen(String)}和{@link Board#toFen()}的测试
+ */
+public class FenTest {
+
+    private static final String[] FENS = {
+            "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1",
+            "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w - - 0 1",
+            "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w - - 0 1",
+    };
+
+    @Test
+    public void roundTrip() {
+        for (String fen : FENS) {
+            assertEquals(fen, fen, Board.fromFen(fen).toFen());
+        }
+    }
+
+    @Test
+    public void rejectsSideNotToMoveInCheck() {
+        assertInvalid("3k5/9/9/9/9/3R5/9/9/9/4K4 w - - 0 1");
+        // 将帅对面
+        assertInvalid("4k4/9/9/9/9/9/9/9/9/4K4 b - - 0 1");
+        Board.fromFen("3k5/9/9/9/9/3R5/9/9/9/4K4 b - - 0 1");
+    }
+
+    @Test
+    public void rejectsUnreachableSquares() {
+        assertInvalid("3k5/9/9/9/9/9/9/9/9/K8 w - - 0 1");
+        assertInvalid("3k5/9/9/9/9/9/9/4A4/9/4K4 w - - 0 1");
+        assertInvalid("3k5/9/9/9/9/9/9/9/4B4/4K4 w - - 0 1");
+        assertInvalid("3k5/9/9/9/2B6/9/9/9/9/4K4 w - - 0 1");
+        // 未过河的兵不在出发的5列上，或在出发的横线之后
+        assertInvalid("3k5/9/9/9/9/1P7/9/9/9/4K4 w - - 0 1");
+        assertInvalid("3k5/9/9/9/9/9/9/9/4P4/3K5 w - - 0 1");
+        assertInvalid("3k5/1p7/9/9/9/9/9/9/9/4K4 w - - 0 1");
+        Board.fromFen("3k5/9/9/9/1P7/9/9/9/4A4/4K4 w - - 0 1");
+        Board.fromFen("3k5/9/9/9/9/1p7/9/9/9/4K4 w - - 0 1");
+    }
+
+    private static void assertInvalid(String fen) {
+        try {
+            Board.fromFen(fen);
+            fail("Accepted " + fen);
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+    }
+}
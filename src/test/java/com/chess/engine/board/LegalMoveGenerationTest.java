@@ -0,0 +1,78 @@
+package com.chess.engine.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.fail;
+
+/**
+ * 检查根据牵制生成的合法走法与全部走法逐个试走并用{@link Board#isStateAllowed()}过滤的结果相同（包括顺序，
+ * 吃子走法还包括排序分值），遍历{@link Perft}内置局面的走法树
+ */
+public class LegalMoveGenerationTest {
+
+    private static final int DEPTH = 3;
+
+    @Test
+    public void legalMovesMatchTrialFiltering() {
+        for (String fen : Perft.REFERENCE_FENS) {
+            walk(Board.fromFen(fen), DEPTH);
+        }
+    }
+
+    /**
+     * 遍历给定深度的全部合法走法，在每个节点上比较合法走法和合法吃子走法
+     */
+    private static void walk(Board board, int depth) {
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        MoveList allMoves = new MoveList();
+        board.generateMoves(allMoves);
+        assertSameMoves(board, "moves", moves, filterLegal(board, allMoves), false);
+
+        MoveList captures = new MoveList();
+        board.generateLegalCaptures(captures);
+        MoveList allCaptures = new MoveList();
+        board.generateCaptures(allCaptures);
+        assertSameMoves(board, "captures", captures, filterLegal(board, allCaptures), true);
+
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            walk(board, depth - 1);
+            board.unmakeMove(moves.get(i));
+        }
+    }
+
+    /**
+     * 返回给定走法中试走后不送将的走法，保持顺序和排序分值
+     */
+    private static MoveList filterLegal(Board board, MoveList moves) {
+        MoveList legalMoves = new MoveList();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            boolean isAllowed = board.isStateAllowed();
+            board.unmakeMove(move);
+            if (isAllowed) {
+                legalMoves.add(move, moves.getScore(i));
+            }
+        }
+        return legalMoves;
+    }
+
+    /**
+     * 检查走法列表相同，非吃子走法生成时没有排序分值，所以只比较吃子走法的分值
+     */
+    private static void assertSameMoves(Board board, String kind, MoveList actual, MoveList expected,
+                                        boolean compareScores) {
+        boolean isSame = actual.size() == expected.size();
+        for (int i = 0; isSame && i < actual.size(); i++) {
+            isSame = actual.get(i) == expected.get(i) && (!compareScores || actual.getScore(i) == expected.getScore(i));
+        }
+        if (!isSame) {
+            fail("Legal " + kind + " differ from trial filtering: " + board.toFen());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pins what the deterministic parallel mode of {@link FixedDepthSearch} guarantees: the same move, value and node count
+ * for any number of threads and for repeated searches. It does not promise the result of the Lazy SMP search.
+ */
+public class FixedDepthSearchTest {
+
+    private static final String[] FENS = {
+            "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1",
+            "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w - - 0 1",
+            "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w - - 0 1",
+    };
+    private static final int DEPTH = 4;
+    private static final int MAX_THREADS = 3;
+
+    @Test
+    public void deterministicSearchDoesNotDependOnThreads() {
+        for (String fen : FENS) {
+            FixedDepthSearch base = search(fen, 1);
+            Move baseMove = base.search();
+            for (int threads = 1; threads <= MAX_THREADS; threads++) {
+                FixedDepthSearch search = search(fen, threads);
+                Move move = search.search();
+                assertEquals(fen + " with " + threads + " threads", baseMove, move);
+                assertEquals(fen + " with " + threads + " threads", base.getBestVal(), search.getBestVal());
+                assertEquals(fen + " with " + threads + " threads", base.getNodeCount(), search.getNodeCount());
+            }
+        }
+    }
+
+    @Test
+    public void deterministicSearchReturnsLegalMove() {
+        for (String fen : FENS) {
+            Board board = Board.fromFen(fen);
+            Move move = search(fen, MAX_THREADS).search();
+            assertTrue(fen, board.getCurrPlayerLegalMoves().contains(move));
+        }
+    }
+
+    private static FixedDepthSearch search(String fen, int threads) {
+        Board board = Board.fromFen(fen);
+        return new FixedDepthSearch(board, board.getCurrPlayerLegalMoves(), DEPTH, threads, true, false,
+                new TranspositionTable());
+    }
+}